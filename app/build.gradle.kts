@@ -60,6 +60,10 @@ android {
             )
         }
     }
+    testOptions {
+        // JVM tests reach android.util.Log through the detector code
+        unitTests.isReturnDefaultValues = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
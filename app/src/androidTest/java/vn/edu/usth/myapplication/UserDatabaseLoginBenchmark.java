@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: UserDatabaseLoginBenchmark.java
+ * Last Modified: 18/10/2026 11:20
+ */
+
+package vn.edu.usth.myapplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Login should be a single index lookup, so its cost must not grow with the users table.
+ * Seeds 1k, 10k and 100k accounts into a throwaway database and times the credential lookup.
+ * Password hashing is deliberately slow and constant per login, so it is left out of the timing.
+ */
+@RunWith(AndroidJUnit4.class)
+public class UserDatabaseLoginBenchmark {
+    private static final String TAG = "LoginBenchmark";
+    private static final String DB_NAME = "login_benchmark.db";
+    private static final int[] TABLE_SIZES = {1_000, 10_000, 100_000};
+    private static final int WARMUP = 200;
+    private static final int LOOKUPS = 2_000;
+    // Generous bound for device noise; a table scan would be ~100x slower at 100k rows
+    private static final double MAX_GROWTH = 3.0;
+
+    private Context context;
+    private UserDatabase database;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        database = new UserDatabase(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void loginCostStaysFlatAsTableGrows() {
+        double[] nanosPerLogin = new double[TABLE_SIZES.length];
+        int seeded = 0;
+        for (int i = 0; i < TABLE_SIZES.length; i++) {
+            seed(seeded, TABLE_SIZES[i]);
+            seeded = TABLE_SIZES[i];
+            nanosPerLogin[i] = timeLogins(seeded);
+            Log.i(TAG, String.format(Locale.US, "%,d users: %.1f us/lookup", seeded, nanosPerLogin[i] / 1000));
+        }
+
+        double growth = nanosPerLogin[nanosPerLogin.length - 1] / nanosPerLogin[0];
+        Log.i(TAG, String.format(Locale.US, "100k/1k cost ratio: %.2f", growth));
+        assertTrue("lookup cost grew " + growth + "x from 1k to 100k users", growth <= MAX_GROWTH);
+    }
+
+    @Test
+    public void authenticateDistinguishesOutcomes() {
+        assertEquals(UserDatabase.RegisterResult.SUCCESS, database.registerUser("a@b.com", "secret"));
+        assertEquals(UserDatabase.RegisterResult.EMAIL_TAKEN, database.registerUser("A@B.com", "other"));
+        assertEquals(UserDatabase.LoginResult.OK, database.authenticate("A@b.COM", "secret"));
+        assertEquals(UserDatabase.LoginResult.BAD_PASSWORD, database.authenticate("a@b.com", "wrong"));
+        assertEquals(UserDatabase.LoginResult.NO_SUCH_USER, database.authenticate("x@b.com", "secret"));
+        assertTrue(PasswordHasher.isHash(database.lookupPassword("a@b.com")));
+    }
+
+    @Test
+    public void legacyPlaintextIsRehashedOnLogin() {
+        seed(0, 1);
+        assertEquals("pw0", database.lookupPassword(email(0)));
+        assertEquals(UserDatabase.LoginResult.BAD_PASSWORD, database.authenticate(email(0), "nope"));
+        assertEquals("pw0", database.lookupPassword(email(0)));
+
+        assertEquals(UserDatabase.LoginResult.OK, database.authenticate(email(0), "pw0"));
+        assertTrue(PasswordHasher.isHash(database.lookupPassword(email(0))));
+        assertEquals(UserDatabase.LoginResult.OK, database.authenticate(email(0), "pw0"));
+    }
+
+    // Adds users [from, to) in one transaction
+    private void seed(int from, int to) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement("INSERT INTO users (email, password) VALUES (?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = from; i < to; i++) {
+                insert.bindString(1, email(i));
+                insert.bindString(2, "pw" + i);
+                insert.executeInsert();
+                insert.clearBindings();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    // Mix of known (in varying case) and unknown emails, like real traffic
+    private double timeLogins(int userCount) {
+        Random random = new Random(42);
+        for (int i = 0; i < WARMUP; i++) {
+            lookup(random, userCount, i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookup(random, userCount, i);
+        }
+        return (System.nanoTime() - start) / (double) LOOKUPS;
+    }
+
+    private void lookup(Random random, int userCount, int i) {
+        int user = random.nextInt(userCount);
+        switch (i % 3) {
+            case 0:
+                assertEquals("pw" + user, database.lookupPassword(email(user)));
+                break;
+            case 1:
+                assertEquals("pw" + user, database.lookupPassword(email(user).toUpperCase(Locale.US)));
+                break;
+            default:
+                assertNull(database.lookupPassword("missing" + user + "@example.com"));
+                break;
+        }
+    }
+
+    private static String email(int i) {
+        return "user" + i + "@example.com";
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: AppStartup.java
+ * Last Modified: 18/10/2026 12:40
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs the app's startup work as a dependency graph. Each initializer names the ones it
+// needs; background initializers start as soon as their dependencies finish and run in
+// parallel, main-thread ones (only what the first frame needs) run inline in start().
+// Async initializers hand their work to another thread and count as finished only when
+// they call done, so dependents wait for the real work. Every initializer's duration,
+// up to that point, is recorded as "startup.<name>_ms" in PerfMetrics.
+public final class AppStartup {
+
+    private static final String TAG = "AppStartup";
+
+    private final Map<String, Initializer> initializers = new LinkedHashMap<>();
+    private final Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+    private ExecutorService pool;
+    private boolean started = false;
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    // Work that finishes on another thread; done must be called exactly once, from any thread
+    public interface AsyncTask {
+        void start(Runnable done) throws Exception;
+    }
+
+    // Work that must happen on the main thread before the first activity is created
+    public AppStartup onMain(String name, Task task, String... dependsOn) {
+        return add(new Initializer(name, true, false, sync(task), dependsOn));
+    }
+
+    // Started on the main thread, finished elsewhere; main-thread initializers can't depend on it
+    public AppStartup onMainAsync(String name, AsyncTask task, String... dependsOn) {
+        return add(new Initializer(name, true, true, task, dependsOn));
+    }
+
+    // Work that can run on a background thread in parallel with everything else
+    public AppStartup inBackground(String name, Task task, String... dependsOn) {
+        return add(new Initializer(name, false, false, sync(task), dependsOn));
+    }
+
+    // Started on a startup thread, finished on the component's own executor
+    public AppStartup inBackgroundAsync(String name, AsyncTask task, String... dependsOn) {
+        return add(new Initializer(name, false, true, task, dependsOn));
+    }
+
+    private static AsyncTask sync(Task task) {
+        return done -> {
+            task.run();
+            done.run();
+        };
+    }
+
+    private AppStartup add(Initializer initializer) {
+        if (started) throw new IllegalStateException("Startup already running");
+        if (initializers.containsKey(initializer.name)) {
+            throw new IllegalArgumentException("Duplicate initializer " + initializer.name);
+        }
+        for (String dep : initializer.dependsOn) {
+            Initializer parent = initializers.get(dep);
+            // Dependencies must be registered first, which also rules out cycles
+            if (parent == null) {
+                throw new IllegalArgumentException(initializer.name + " depends on unknown " + dep);
+            }
+            // A main-thread initializer can't wait for a background one without blocking the UI
+            if (initializer.runOnMain && !parent.runOnMain) {
+                throw new IllegalArgumentException(initializer.name + " runs on main but depends on background " + dep);
+            }
+            // Nor for an async one, which is still running when start() reaches it
+            if (initializer.runOnMain && parent.async) {
+                throw new IllegalArgumentException(initializer.name + " runs on main but depends on async " + dep);
+            }
+        }
+        initializers.put(initializer.name, initializer);
+        return this;
+    }
+
+    // Runs the main-thread initializers now and schedules the rest. Main thread.
+    public void start() {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            throw new IllegalStateException("start() must be called on the main thread");
+        }
+        if (started) return;
+        started = true;
+
+        long startTime = SystemClock.elapsedRealtime();
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger threadCount = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "startup-" + threadCount.incrementAndGet());
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        });
+
+        // Registration order is already a topological order
+        for (Initializer initializer : initializers.values()) {
+            if (initializer.runOnMain) {
+                futures.put(initializer.name, initializer.runTimed());
+            } else {
+                CompletableFuture<?>[] deps = new CompletableFuture<?>[initializer.dependsOn.size()];
+                for (int i = 0; i < deps.length; i++) {
+                    deps[i] = futures.get(initializer.dependsOn.get(i));
+                }
+                // A failed dependency doesn't stop its dependents; each component copes
+                // with its own lazy fallback
+                futures.put(initializer.name, CompletableFuture.allOf(deps)
+                        .handle((ignored, error) -> null)
+                        .thenComposeAsync(ignored -> initializer.runTimed(), pool));
+            }
+        }
+
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+                .whenComplete((ignored, error) -> {
+                    long total = SystemClock.elapsedRealtime() - startTime;
+                    PerfMetrics.record("startup.total_ms", total);
+                    PerfMetrics.event("startup", initializers.size() + " initializers done in " + total + " ms");
+                    pool.shutdown();
+                });
+        PerfMetrics.record("startup.main_thread_ms", SystemClock.elapsedRealtime() - startTime);
+    }
+
+    private static final class Initializer {
+        final String name;
+        final boolean runOnMain;
+        final boolean async;
+        final AsyncTask task;
+        final List<String> dependsOn;
+
+        Initializer(String name, boolean runOnMain, boolean async, AsyncTask task, String[] dependsOn) {
+            this.name = name;
+            this.runOnMain = runOnMain;
+            this.async = async;
+            this.task = task;
+            this.dependsOn = new ArrayList<>(Arrays.asList(dependsOn));
+        }
+
+        // Starts the task; the returned future completes (never exceptionally) when it calls
+        // done or throws, which is also when its duration is recorded
+        CompletableFuture<Void> runTimed() {
+            long start = SystemClock.elapsedRealtime();
+            CompletableFuture<Void> finished = new CompletableFuture<>();
+            AtomicBoolean recorded = new AtomicBoolean();
+            // Recorded before completing so the metric lands ahead of any dependent's
+            Runnable done = () -> {
+                if (!recorded.compareAndSet(false, true)) return;
+                PerfMetrics.record("startup." + name + "_ms", SystemClock.elapsedRealtime() - start);
+                finished.complete(null);
+            };
+            try {
+                task.start(done);
+            } catch (Exception e) {
+                Log.e(TAG, "Initializer " + name + " failed", e);
+                PerfMetrics.event("startup", name + " failed: " + e);
+                done.run();
+            }
+            return finished;
+        }
+    }
+}
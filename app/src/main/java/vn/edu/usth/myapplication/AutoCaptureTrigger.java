@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: AutoCaptureTrigger.java
+ * Last Modified: 18/10/2026 20:05
+ */
+
+package vn.edu.usth.myapplication;
+
+import java.util.List;
+
+// Decides when auto-capture should fire the shutter. The most confident live result has to
+// keep the same class, above a confidence threshold, with its box barely moving, for a run
+// of consecutive detections (frames the detector actually ran on); a hand still swinging
+// around or a label flickering between classes restarts the run. After firing, the trigger
+// stays quiet for a cooldown.
+// Not thread-safe; the camera screen feeds it from the main thread.
+public class AutoCaptureTrigger {
+
+    static final float DEFAULT_MIN_CONFIDENCE = 0.6f;
+    // Detections, not camera frames: the live detector runs every few frames
+    static final int DEFAULT_STABLE_FRAMES = 3;
+    // Consecutive boxes must overlap at least this much to count as not moving
+    static final float DEFAULT_MIN_OVERLAP = 0.8f;
+    static final long DEFAULT_COOLDOWN_MS = 4000;
+
+    private final float minConfidence;
+    private final int stableFrames;
+    private final float minOverlap;
+    private final long cooldownMs;
+
+    private YOLOv5Classifier.Result candidate;
+    private int frames = 0;
+    private long firstSeenAt = 0;
+    private long lastFiredAt = Long.MIN_VALUE / 2;
+
+    public AutoCaptureTrigger() {
+        this(DEFAULT_MIN_CONFIDENCE, DEFAULT_STABLE_FRAMES, DEFAULT_MIN_OVERLAP, DEFAULT_COOLDOWN_MS);
+    }
+
+    public AutoCaptureTrigger(float minConfidence, int stableFrames, float minOverlap, long cooldownMs) {
+        this.minConfidence = minConfidence;
+        this.stableFrames = stableFrames;
+        this.minOverlap = minOverlap;
+        this.cooldownMs = cooldownMs;
+    }
+
+    /**
+     * Feeds the results of one frame the detector ran on. Returns true when the shutter should fire now.
+     */
+    public boolean onFrame(List<YOLOv5Classifier.Result> results, long nowMs) {
+        YOLOv5Classifier.Result best = null;
+        for (YOLOv5Classifier.Result r : results) {
+            if (best == null || r.conf > best.conf) best = r;
+        }
+        if (best == null || best.conf < minConfidence) {
+            candidate = null;
+            frames = 0;
+            return false;
+        }
+        if (candidate != null && candidate.label.equals(best.label) && YOLOv5Classifier.iou(candidate, best) >= minOverlap) {
+            frames++;
+        } else {
+            // A new object (or the same one moved too much); its run starts here
+            if (candidate == null || !candidate.label.equals(best.label)) firstSeenAt = nowMs;
+            frames = 1;
+        }
+        candidate = best;
+
+        if (frames < stableFrames || nowMs - lastFiredAt < cooldownMs) return false;
+        lastFiredAt = nowMs;
+        frames = 0;
+        return true;
+    }
+
+    // When the object that fired the last trigger first came into view
+    public long getFirstSeenAt() {
+        return firstSeenAt;
+    }
+
+    public void reset() {
+        candidate = null;
+        frames = 0;
+    }
+}
@@ -14,8 +14,10 @@ import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
 
 import java.io.IOException;
+import java.net.UnknownHostException;
 import java.util.List;
 
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -32,14 +34,40 @@ public class AzureTranslatorService {
     private static final String API_KEY = BuildConfig.AZURE_TRANSLATOR_KEY;
     private static final String LOCATION = BuildConfig.AZURE_TRANSLATOR_REGION;
 
+    // One client for the whole app so every screen shares its connection pool and
+    // TLS sessions; built during startup by warmUp()
+    private static volatile OkHttpClient sharedClient;
+
     private final OkHttpClient client;
     private final Gson gson;
 
     public AzureTranslatorService() {
-        client = new OkHttpClient();
+        client = getSharedClient();
         gson = new Gson();
     }
 
+    static OkHttpClient getSharedClient() {
+        if (sharedClient == null) {
+            synchronized (AzureTranslatorService.class) {
+                if (sharedClient == null) {
+                    sharedClient = new OkHttpClient();
+                }
+            }
+        }
+        return sharedClient;
+    }
+
+    // Builds the shared client and resolves the endpoint host so the first translation
+    // doesn't pay for either. Blocks; startup runs it on a background thread.
+    public static void warmUp() {
+        OkHttpClient client = getSharedClient();
+        try {
+            client.dns().lookup(HttpUrl.get(ENDPOINT).host());
+        } catch (UnknownHostException e) {
+            Log.d(TAG, "Endpoint not resolvable yet (offline?)");
+        }
+    }
+
     public void translate(String text, String targetLanguage, TranslationCallback callback) {
         new Thread(() -> {
             try {
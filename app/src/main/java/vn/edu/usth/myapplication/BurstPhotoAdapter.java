@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: BurstPhotoAdapter.java
+ * Last Modified: 18/10/2026 19:30
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+
+public class BurstPhotoAdapter extends RecyclerView.Adapter<BurstPhotoAdapter.BurstViewHolder> {
+
+    public interface OnItemClickListener {
+        void onItemClick(DetectionPipeline.Item item);
+    }
+
+    private final List<DetectionPipeline.Item> items;
+    private OnItemClickListener listener;
+
+    public BurstPhotoAdapter(List<DetectionPipeline.Item> items) {
+        this.items = items;
+    }
+
+    public void setOnItemClickListener(OnItemClickListener listener) {
+        this.listener = listener;
+    }
+
+    @NonNull
+    @Override
+    public BurstViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_burst_photo, parent, false);
+        return new BurstViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull BurstViewHolder holder, int position) {
+        DetectionPipeline.Item item = items.get(position);
+
+        // Thumbnails were made by the pipeline's decode stage; nothing to load here
+        holder.imageView.setImageBitmap(item.thumbnail);
+
+        StringBuilder labels = new StringBuilder();
+        for (YOLOv5Classifier.Result r : item.results) {
+            if (labels.length() > 0) labels.append(", ");
+            labels.append(YOLOv5Classifier.caption(r));
+        }
+        holder.labelsText.setText(labels.length() > 0 ? labels.toString()
+                : holder.itemView.getContext().getString(R.string.no_objects_detected));
+
+        holder.itemView.setOnClickListener(v -> {
+            if (listener != null) listener.onItemClick(item);
+        });
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    static class BurstViewHolder extends RecyclerView.ViewHolder {
+        ImageView imageView;
+        TextView labelsText;
+
+        BurstViewHolder(@NonNull View itemView) {
+            super(itemView);
+            imageView = itemView.findViewById(R.id.image_photo);
+            labelsText = itemView.findViewById(R.id.text_labels);
+        }
+    }
+}
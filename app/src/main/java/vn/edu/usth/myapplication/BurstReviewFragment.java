@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: BurstReviewFragment.java
+ * Last Modified: 18/10/2026 19:35
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.navigation.NavController;
+import androidx.navigation.Navigation;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Review screen for a burst: one grid with every photo and what was detected in it. Photos
+// show up as the pipeline finishes them; tapping one goes to translation with its labels.
+public class BurstReviewFragment extends Fragment {
+
+    private static final String TAG = "BurstReviewFragment";
+
+    private final List<DetectionPipeline.Item> items = new ArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private BurstPhotoAdapter adapter;
+    private TextView txtStatus;
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater,
+                             @Nullable ViewGroup container,
+                             @Nullable Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.fragment_burst_review, container, false);
+
+        txtStatus = view.findViewById(R.id.txt_burst_status);
+        RecyclerView recycler = view.findViewById(R.id.recycler_burst);
+        adapter = new BurstPhotoAdapter(items);
+        adapter.setOnItemClickListener(this::openTranslation);
+        recycler.setLayoutManager(new GridLayoutManager(getContext(), 2));
+        recycler.setAdapter(adapter);
+
+        return view;
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        BurstSession.getInstance().setListener(this::refresh);
+        refresh();
+    }
+
+    private void refresh() {
+        BurstSession session = BurstSession.getInstance();
+        List<DetectionPipeline.Item> done = session.getItems();
+        // Items only ever get appended
+        int before = items.size();
+        for (int i = before; i < done.size(); i++) items.add(done.get(i));
+        if (items.size() > before) adapter.notifyItemRangeInserted(before, items.size() - before);
+
+        if (session.isFinished()) {
+            txtStatus.setText(getString(R.string.burst_done, items.size(),
+                    String.format(Locale.US, "%.1f", session.getImagesPerSecond())));
+        } else {
+            txtStatus.setText(getString(R.string.burst_progress, items.size(), session.getExpected()));
+        }
+    }
+
+    private void openTranslation(DetectionPipeline.Item item) {
+        CaptureHandoff handoff = CaptureHandoff.getInstance(requireContext());
+        new Thread(() -> {
+            try {
+                File file = handoff.persist(item.capture);
+                mainHandler.post(() -> {
+                    if (!isAdded()) return;
+                    Set<String> labels = new LinkedHashSet<>();
+                    for (YOLOv5Classifier.Result r : item.results) labels.add(r.label);
+
+                    Bundle bundle = new Bundle();
+                    bundle.putStringArray("detected_objects", labels.toArray(new String[0]));
+                    bundle.putString("photo_uri", Uri.fromFile(file).toString());
+                    NavController navController = Navigation.findNavController(requireActivity(), R.id.nav_host_fragment);
+                    navController.navigate(R.id.action_burstReviewFragment_to_translationFragment, bundle);
+                });
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write capture", e);
+                mainHandler.post(() -> {
+                    if (isAdded()) Toast.makeText(requireContext(), "Failed to save photo", Toast.LENGTH_SHORT).show();
+                });
+            }
+        }).start();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        BurstSession.getInstance().setListener(null);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        // Leaving the review for good; the captures and thumbnails aren't needed any more
+        if (!requireActivity().isChangingConfigurations()) {
+            BurstSession.getInstance().clear();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: BurstSession.java
+ * Last Modified: 18/10/2026 19:25
+ */
+
+package vn.edu.usth.myapplication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The burst currently being shot and reviewed. The camera screen starts it and feeds the
+// pipeline; the review screen reads the items as they finish, so it can open before the
+// pipeline has drained. Main thread only.
+public class BurstSession implements DetectionPipeline.Listener {
+
+    private static final BurstSession instance = new BurstSession();
+
+    public interface Listener {
+        void onBurstChanged();
+    }
+
+    private final List<DetectionPipeline.Item> items = new ArrayList<>();
+    private DetectionPipeline pipeline;
+    private Listener listener;
+    private int expected = 0;
+    private boolean finished = false;
+    private double imagesPerSecond = 0;
+
+    private BurstSession() {
+    }
+
+    public static BurstSession getInstance() {
+        return instance;
+    }
+
+    // Drops the previous burst (stopping its pipeline) and starts collecting a new one
+    public void begin(DetectionPipeline pipeline, int expected) {
+        clear();
+        this.pipeline = pipeline;
+        this.expected = expected;
+    }
+
+    // Fewer photos than planned were taken (e.g. a capture failed)
+    public void setExpected(int expected) {
+        this.expected = expected;
+        notifyChanged();
+    }
+
+    public void clear() {
+        if (pipeline != null) pipeline.cancel();
+        pipeline = null;
+        items.clear();
+        expected = 0;
+        finished = false;
+        imagesPerSecond = 0;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public List<DetectionPipeline.Item> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    public int getExpected() {
+        return expected;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public double getImagesPerSecond() {
+        return imagesPerSecond;
+    }
+
+    @Override
+    public void onItemDone(DetectionPipeline.Item item) {
+        items.add(item);
+        notifyChanged();
+    }
+
+    @Override
+    public void onFinished(int count, double imagesPerSecond) {
+        this.finished = true;
+        this.imagesPerSecond = imagesPerSecond;
+        pipeline = null;
+        notifyChanged();
+    }
+
+    private void notifyChanged() {
+        if (listener != null) listener.onBurstChanged();
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: CaptureCacheManager.java
+ * Last Modified: 18/10/2026 10:05
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Owns the temp_*.jpg captures in getCacheDir(). Files in use (shown in a preview, waiting in
+// the save queue) are pinned; everything else is evicted least-recently-used first once the
+// directory goes over its byte budget, and leftovers from dead processes are swept on startup.
+public class CaptureCacheManager {
+
+    private static final String TAG = "CaptureCacheManager";
+    private static final String PREFIX = "temp_";
+    private static final String SUFFIX = ".jpg";
+    private static final long DEFAULT_BYTE_BUDGET = 50L * 1024 * 1024;
+    // Captures younger than this may still belong to a screen being restored, so the
+    // startup sweep leaves them to the LRU budget instead
+    private static final long ORPHAN_AGE_MS = 60L * 60 * 1000;
+
+    private static volatile CaptureCacheManager instance;
+
+    private final File cacheDir;
+    private final Map<String, Integer> pins = new HashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Context appContext;
+    private volatile long byteBudget = DEFAULT_BYTE_BUDGET;
+
+    private CaptureCacheManager(Context context) {
+        appContext = context.getApplicationContext();
+        cacheDir = appContext.getCacheDir();
+    }
+
+    public static CaptureCacheManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (CaptureCacheManager.class) {
+                if (instance == null) {
+                    instance = new CaptureCacheManager(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void setByteBudget(long bytes) {
+        byteBudget = bytes;
+        trimAsync();
+    }
+
+    public long getByteBudget() {
+        return byteBudget;
+    }
+
+    // A fresh, not yet existing file for the camera to write into
+    public File newCaptureFile() {
+        String name = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss-SSS", Locale.US)
+                .format(System.currentTimeMillis());
+        return new File(cacheDir, PREFIX + name + SUFFIX);
+    }
+
+    public boolean isCaptureFile(File file) {
+        return file != null && cacheDir.equals(file.getParentFile())
+                && file.getName().startsWith(PREFIX) && file.getName().endsWith(SUFFIX);
+    }
+
+    // Call once the camera has finished writing a capture
+    public void onCaptureWritten(File file) {
+        touch(file);
+        trimAsync();
+    }
+
+    // Marks a capture as recently used
+    public void touch(File file) {
+        if (file != null && file.exists()) {
+            file.setLastModified(System.currentTimeMillis());
+        }
+    }
+
+    // Pinned files are never evicted; pins are counted, so every pin needs an unpin
+    public void pin(File file) {
+        if (file == null) return;
+        synchronized (pins) {
+            Integer count = pins.get(file.getAbsolutePath());
+            pins.put(file.getAbsolutePath(), count == null ? 1 : count + 1);
+        }
+        touch(file);
+    }
+
+    public void unpin(File file) {
+        if (file == null) return;
+        synchronized (pins) {
+            Integer count = pins.get(file.getAbsolutePath());
+            if (count == null || count <= 1) {
+                pins.remove(file.getAbsolutePath());
+            } else {
+                pins.put(file.getAbsolutePath(), count - 1);
+            }
+        }
+    }
+
+    // Deletes a capture the user threw away, unless something else still holds it
+    public void discard(File file) {
+        if (!isCaptureFile(file)) return;
+        executor.execute(() -> {
+            if (!isPinned(file) && file.exists() && !file.delete()) {
+                Log.w(TAG, "Failed to delete " + file);
+            }
+        });
+    }
+
+    public void trimAsync() {
+        executor.execute(() -> report("trim", trimToBudget()));
+    }
+
+    // Removes captures left behind by crashes, process death or navigation that skipped
+    // the preview's back/save buttons, then trims to budget
+    // done runs on the cache thread once the sweep is over
+    public void sweepOrphansAsync(Runnable done) {
+        executor.execute(() -> {
+            try {
+                Set<String> pending = PhotoSaveQueue.getInstance(appContext).getPendingSourcePaths();
+                long cutoff = System.currentTimeMillis() - ORPHAN_AGE_MS;
+                long reclaimed = 0;
+                for (File f : listCaptures()) {
+                    if (pending.contains(f.getAbsolutePath()) || isPinned(f)) continue;
+                    if (f.lastModified() >= cutoff) continue;
+                    long size = f.length();
+                    if (f.delete()) reclaimed += size;
+                }
+                report("orphan sweep", reclaimed + trimToBudget());
+            } finally {
+                done.run();
+            }
+        });
+    }
+
+    private long trimToBudget() {
+        List<File> captures = listCaptures();
+        List<File> evictable = new ArrayList<>();
+        long pinnedBytes = 0;
+        for (File f : captures) {
+            if (isPinned(f)) {
+                pinnedBytes += f.length();
+            } else {
+                evictable.add(f);
+            }
+        }
+        return evictLeastRecentlyUsed(evictable, Math.max(0, byteBudget - pinnedBytes));
+    }
+
+    // Deletes the oldest (by last-modified) files until the rest fit in budget bytes.
+    // Returns the number of bytes reclaimed. Shared with other size-bounded caches.
+    static long evictLeastRecentlyUsed(Collection<File> files, long budget) {
+        List<File> sorted = new ArrayList<>(files);
+        long total = 0;
+        Map<File, Long> modified = new HashMap<>();
+        for (File f : sorted) {
+            total += f.length();
+            modified.put(f, f.lastModified());
+        }
+        if (total <= budget) return 0;
+
+        sorted.sort((a, b) -> Long.compare(modified.get(a), modified.get(b)));
+        long reclaimed = 0;
+        for (File f : sorted) {
+            if (total <= budget) break;
+            long size = f.length();
+            if (f.delete()) {
+                total -= size;
+                reclaimed += size;
+            }
+        }
+        return reclaimed;
+    }
+
+    private List<File> listCaptures() {
+        File[] files = cacheDir.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        return files == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(files));
+    }
+
+    private boolean isPinned(File file) {
+        synchronized (pins) {
+            return pins.containsKey(file.getAbsolutePath());
+        }
+    }
+
+    private void report(String what, long reclaimed) {
+        if (reclaimed <= 0) return;
+        PerfMetrics.record("cache.reclaimed_bytes", reclaimed);
+        PerfMetrics.event("cache", what + " reclaimed " + reclaimed + " bytes");
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: CaptureHandoff.java
+ * Last Modified: 18/10/2026 18:15
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.util.Log;
+
+import androidx.camera.core.ImageProxy;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+// In-process handoff of a just-taken photo from the camera screen to the preview screen.
+// The camera's JPEG stays in memory and the preview decodes it directly, so detection can
+// start without a file write and read-back. The bytes are written to the capture cache
+// only when something needs a file (saving, the translation screen). Holds one capture at
+// a time; a newer capture replaces the older one.
+public class CaptureHandoff {
+
+    private static final String TAG = "CaptureHandoff";
+
+    private static volatile CaptureHandoff instance;
+
+    private final Context appContext;
+    private Capture current;
+
+    public static final class Capture {
+        public final String id;
+        // Time of the shutter press, SystemClock.elapsedRealtime()
+        public final long shutterAt;
+        final byte[] jpeg;
+        final int rotationDegrees;
+        private File persisted;
+
+        Capture(byte[] jpeg, int rotationDegrees, long shutterAt) {
+            this.id = UUID.randomUUID().toString();
+            this.jpeg = jpeg;
+            this.rotationDegrees = rotationDegrees;
+            this.shutterAt = shutterAt;
+        }
+    }
+
+    private CaptureHandoff(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    public static CaptureHandoff getInstance(Context context) {
+        if (instance == null) {
+            synchronized (CaptureHandoff.class) {
+                if (instance == null) {
+                    instance = new CaptureHandoff(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Copies the JPEG out of an in-memory capture and makes it the current one; the caller
+    // still closes the image
+    public synchronized Capture put(ImageProxy image, long shutterAt) {
+        current = copyOf(image, shutterAt);
+        return current;
+    }
+
+    // Copies the JPEG out of an in-memory capture without handing it off (e.g. for a burst)
+    public static Capture copyOf(ImageProxy image, long shutterAt) {
+        ByteBuffer buffer = image.getPlanes()[0].getBuffer();
+        buffer.rewind();
+        byte[] jpeg = new byte[buffer.remaining()];
+        buffer.get(jpeg);
+        return new Capture(jpeg, image.getImageInfo().getRotationDegrees(), shutterAt);
+    }
+
+    // The capture with this id, or null if it has been replaced or released
+    public synchronized Capture get(String id) {
+        return current != null && current.id.equals(id) ? current : null;
+    }
+
+    public synchronized void release(String id) {
+        if (current != null && current.id.equals(id)) current = null;
+    }
+
+    // Decodes the capture upright. Blocks; call it off the main thread.
+    public static Bitmap decode(Capture capture) {
+        return decode(capture, 0);
+    }
+
+    // Like decode(capture), but subsampled by a power of two while both sides stay at least
+    // minSide (0: full size); much cheaper when only the detector needs the pixels
+    public static Bitmap decode(Capture capture, int minSide) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        if (minSide > 0) {
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(capture.jpeg, 0, capture.jpeg.length, options);
+            int sample = 1;
+            while (options.outWidth / (sample * 2) >= minSide && options.outHeight / (sample * 2) >= minSide) {
+                sample *= 2;
+            }
+            options = new BitmapFactory.Options();
+            options.inSampleSize = sample;
+        }
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap bitmap = BitmapFactory.decodeByteArray(capture.jpeg, 0, capture.jpeg.length, options);
+        if (bitmap == null || capture.rotationDegrees == 0) return bitmap;
+        Matrix matrix = new Matrix();
+        matrix.postRotate(capture.rotationDegrees);
+        Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (rotated != bitmap) bitmap.recycle();
+        return rotated;
+    }
+
+    /**
+     * Writes the capture into the capture cache (once) and returns the file. The orientation
+     * goes into EXIF, as the file-based capture does, so decoders show it upright. Blocks;
+     * call it off the main thread.
+     */
+    public File persist(Capture capture) throws IOException {
+        synchronized (capture) {
+            if (capture.persisted != null && capture.persisted.exists()) return capture.persisted;
+            CaptureCacheManager cacheManager = CaptureCacheManager.getInstance(appContext);
+            File file = cacheManager.newCaptureFile();
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(capture.jpeg);
+            }
+            try {
+                ExifInterface exif = new ExifInterface(file.getAbsolutePath());
+                exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(exifOrientation(capture.rotationDegrees)));
+                exif.saveAttributes();
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot write orientation to " + file, e);
+            }
+            cacheManager.onCaptureWritten(file);
+            capture.persisted = file;
+            return file;
+        }
+    }
+
+    private static int exifOrientation(int rotationDegrees) {
+        switch (rotationDegrees) {
+            case 90:
+                return ExifInterface.ORIENTATION_ROTATE_90;
+            case 180:
+                return ExifInterface.ORIENTATION_ROTATE_180;
+            case 270:
+                return ExifInterface.ORIENTATION_ROTATE_270;
+            default:
+                return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+}
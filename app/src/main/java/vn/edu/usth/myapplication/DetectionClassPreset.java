@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: DetectionClassPreset.java
+ * Last Modified: 18/10/2026 15:05
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.Context;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Saved groups of COCO classes the detector should look for (or ignore). The chosen preset
+// and whether it is a whitelist or a blacklist live in SettingsStore; the detector gets it
+// as a class mask and never scores the disabled columns.
+public enum DetectionClassPreset {
+    ALL("All classes"),
+    KITCHEN("Kitchen", "bottle", "wine glass", "cup", "fork", "knife", "spoon", "bowl",
+            "microwave", "oven", "toaster", "sink", "refrigerator", "dining table"),
+    FOOD("Food", "banana", "apple", "sandwich", "orange", "broccoli", "carrot", "hot dog",
+            "pizza", "donut", "cake"),
+    ANIMALS("Animals", "bird", "cat", "dog", "horse", "sheep", "cow", "elephant", "bear",
+            "zebra", "giraffe"),
+    VEHICLES("Vehicles", "bicycle", "car", "motorcycle", "airplane", "bus", "train", "truck",
+            "boat");
+
+    public final String displayName;
+    private final Set<String> labels;
+
+    DetectionClassPreset(String displayName, String... labels) {
+        this.displayName = displayName;
+        this.labels = new HashSet<>(Arrays.asList(labels));
+    }
+
+    public static DetectionClassPreset fromName(String name) {
+        try {
+            return valueOf(name);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return ALL;
+        }
+    }
+
+    // The preset saved in settings
+    public static DetectionClassPreset current(Context context) {
+        return fromName(SettingsStore.getInstance(context).get(SettingsStore.DETECTION_PRESET));
+    }
+
+    // Whether the saved preset lists the classes to ignore rather than the only ones to keep
+    public static boolean isExcluding(Context context) {
+        return SettingsStore.getInstance(context).get(SettingsStore.DETECTION_PRESET_EXCLUDE);
+    }
+
+    // Mask for the saved preset over the given labels, or null if every class is enabled
+    public static boolean[] currentMask(Context context, List<String> allLabels) {
+        return current(context).mask(allLabels, isExcluding(context));
+    }
+
+    // Per-class switch indexed like allLabels, or null if every class is enabled
+    public boolean[] mask(List<String> allLabels, boolean exclude) {
+        if (this == ALL) return null;
+        boolean[] mask = new boolean[allLabels.size()];
+        for (int i = 0; i < mask.length; i++) {
+            mask[i] = labels.contains(allLabels.get(i)) != exclude;
+        }
+        return mask;
+    }
+
+    // "Kitchen" or "All except Kitchen", for the settings row
+    public String describe(boolean exclude) {
+        return this != ALL && exclude ? "All except " + displayName : displayName;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: DetectionOverlayView.java
+ * Last Modified: 18/10/2026 15:40
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Draws detection boxes and labels on top of an ImageView instead of into the photo's
+// pixels, so showing (or re-thresholding) results never copies the full-size bitmap.
+// Boxes are in source-image pixels and are mapped through the ImageView's image matrix,
+// or, over a camera PreviewView, the same fill-center scaling the preview uses.
+public class DetectionOverlayView extends View {
+
+    private final Paint boxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Matrix drawMatrix = new Matrix();
+    private final RectF box = new RectF();
+
+    private final List<YOLOv5Classifier.Result> results = new ArrayList<>();
+    // Captions formatted once per result set, not on every draw
+    private final List<String> captions = new ArrayList<>();
+    private ImageView imageView;
+    private int imageWidth, imageHeight;
+    // Preview mode only: front camera previews are shown mirrored
+    private boolean mirrored;
+
+    public DetectionOverlayView(Context context) {
+        this(context, null);
+    }
+
+    public DetectionOverlayView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        boxPaint.setColor(Color.RED);
+        boxPaint.setStyle(Paint.Style.STROKE);
+        boxPaint.setStrokeWidth(dp(2));
+
+        textPaint.setColor(Color.YELLOW);
+        textPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 14,
+                getResources().getDisplayMetrics()));
+        textPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        textPaint.setShadowLayer(dp(2), 0, 0, Color.BLACK);
+    }
+
+    // Follows imageView's matrix; results are in pixels of an imageWidth x imageHeight image
+    public void setResults(@NonNull ImageView imageView, int imageWidth, int imageHeight,
+                           @NonNull List<YOLOv5Classifier.Result> newResults) {
+        this.imageView = imageView;
+        this.mirrored = false;
+        applyResults(imageWidth, imageHeight, newResults);
+    }
+
+    // For an overlay laid over a PreviewView in FILL_CENTER mode with the same bounds;
+    // results are in pixels of the upright analysis frame
+    public void setPreviewResults(int imageWidth, int imageHeight, boolean mirrored,
+                                  @NonNull List<YOLOv5Classifier.Result> newResults) {
+        this.imageView = null;
+        this.mirrored = mirrored;
+        applyResults(imageWidth, imageHeight, newResults);
+    }
+
+    private void applyResults(int imageWidth, int imageHeight, List<YOLOv5Classifier.Result> newResults) {
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        results.clear();
+        results.addAll(newResults);
+        captions.clear();
+        for (YOLOv5Classifier.Result r : newResults) {
+            captions.add(YOLOv5Classifier.caption(r));
+        }
+        invalidate();
+    }
+
+    public void clear() {
+        results.clear();
+        captions.clear();
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        if (results.isEmpty() || imageWidth <= 0 || imageHeight <= 0 || !updateDrawMatrix()) return;
+
+        float textOffset = dp(4);
+        for (int i = 0; i < results.size(); i++) {
+            YOLOv5Classifier.Result r = results.get(i);
+            box.set(r.left, r.top, r.right, r.bottom);
+            drawMatrix.mapRect(box);
+            canvas.drawRect(box, boxPaint);
+            canvas.drawText(captions.get(i), box.left, Math.max(box.top - textOffset, textPaint.getTextSize()), textPaint);
+        }
+    }
+
+    private boolean updateDrawMatrix() {
+        if (imageView == null) {
+            // Fill-center: scale to cover the view, crop the overflow equally on both sides
+            float scale = Math.max((float) getWidth() / imageWidth, (float) getHeight() / imageHeight);
+            drawMatrix.setScale(mirrored ? -scale : scale, scale);
+            drawMatrix.postTranslate(mirrored ? (getWidth() + imageWidth * scale) / 2 : (getWidth() - imageWidth * scale) / 2,
+                    (getHeight() - imageHeight * scale) / 2);
+            return true;
+        }
+        Drawable drawable = imageView.getDrawable();
+        if (drawable == null || drawable.getIntrinsicWidth() <= 0 || drawable.getIntrinsicHeight() <= 0) return false;
+
+        // Source pixels -> drawable units (BitmapDrawable scales by density) -> view pixels
+        drawMatrix.setScale((float) drawable.getIntrinsicWidth() / imageWidth,
+                (float) drawable.getIntrinsicHeight() / imageHeight);
+        drawMatrix.postConcat(imageView.getImageMatrix());
+        drawMatrix.postTranslate(imageView.getLeft() + imageView.getPaddingLeft() - getLeft(),
+                imageView.getTop() + imageView.getPaddingTop() - getTop());
+        return true;
+    }
+
+    private float dp(float value) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value, getResources().getDisplayMetrics());
+    }
+}
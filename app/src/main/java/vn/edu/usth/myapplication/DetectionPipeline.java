@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: DetectionPipeline.java
+ * Last Modified: 18/10/2026 19:10
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Detection for a burst of captures, as four stages on their own threads: decode,
+// preprocess, inference and postprocess. Stages hand items on through small bounded queues,
+// so while the interpreter works on one photo the next is already being decoded and scaled,
+// and a fast producer blocks instead of piling up full-size bitmaps. Model input/output
+// buffers come from a fixed pool and are reused. Results reach the listener on the main
+// thread in capture order.
+public class DetectionPipeline {
+
+    private static final String TAG = "DetectionPipeline";
+    private static final int QUEUE_CAPACITY = 2;
+    // Input/output buffers in flight; a 640 model's output buffer alone is ~8.6 MB
+    private static final int BUFFERS = 2;
+    // The detector squashes everything to its input (640x640 at most), so decoding much
+    // larger is wasted work
+    private static final int DECODE_MIN_SIDE = 640;
+    private static final int THUMBNAIL_MAX_SIDE = 360;
+    private static final int MAX_RESULTS = 5;
+
+    public interface Listener {
+        void onItemDone(Item item);
+
+        void onFinished(int count, double imagesPerSecond);
+    }
+
+    public static final class Item {
+        public final int index;
+        public final CaptureHandoff.Capture capture;
+        public Bitmap thumbnail;
+        public List<YOLOv5Classifier.Result> results = new ArrayList<>();
+        // Upright, decoded size; the results are in these pixels
+        public int width, height;
+        private Bitmap frame;
+        private ByteBuffer input;
+        private float[][][] output;
+        private boolean failed;
+
+        Item(int index, CaptureHandoff.Capture capture) {
+            this.index = index;
+            this.capture = capture;
+        }
+    }
+
+    private interface Stage {
+        void process(Item item) throws Exception;
+    }
+
+    // Marks the end of the stream as it passes through the stages
+    private static final Item END = new Item(-1, null);
+
+    private final Context appContext;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final BlockingQueue<Item> submitted = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Item> decoded = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Item> preprocessed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Item> inferred = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<ByteBuffer> freeInputs = new ArrayBlockingQueue<>(BUFFERS);
+    private final BlockingQueue<float[][][]> freeOutputs = new ArrayBlockingQueue<>(BUFFERS);
+    private final List<Thread> threads = new ArrayList<>();
+
+    private YOLOv5Classifier detector;
+    private YOLOv5Classifier.Options options;
+    private int submittedCount = 0;
+    private volatile long firstSubmitAt = 0;
+    private volatile boolean cancelled = false;
+
+    public DetectionPipeline(Context context, Listener listener) {
+        this.appContext = context.getApplicationContext();
+        this.listener = listener;
+    }
+
+    public void start() {
+        startStage("decode", submitted, decoded, this::decode);
+        startStage("preprocess", decoded, preprocessed, this::preprocess);
+        startStage("inference", preprocessed, inferred, this::infer);
+        startStage("postprocess", inferred, null, this::postprocess);
+    }
+
+    // Queues a capture; blocks while the first stage is full. Any thread but main.
+    public void submit(CaptureHandoff.Capture capture) throws InterruptedException {
+        if (firstSubmitAt == 0) firstSubmitAt = SystemClock.elapsedRealtime();
+        Item item;
+        synchronized (this) {
+            item = new Item(submittedCount++, capture);
+        }
+        submitted.put(item);
+    }
+
+    // No more captures; onFinished follows once everything queued has been processed
+    public void finish() {
+        new Thread(() -> {
+            try {
+                submitted.put(END);
+            } catch (InterruptedException ignored) {
+            }
+        }, "pipeline-finish").start();
+    }
+
+    // Stops all stages; nothing more is delivered
+    public void cancel() {
+        cancelled = true;
+        for (Thread t : threads) t.interrupt();
+    }
+
+    private void startStage(String name, BlockingQueue<Item> in, BlockingQueue<Item> out, Stage stage) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (!cancelled) {
+                    Item item = in.take();
+                    if (item != END && !item.failed) {
+                        long start = SystemClock.elapsedRealtimeNanos();
+                        try {
+                            stage.process(item);
+                        } catch (InterruptedException e) {
+                            throw e;
+                        } catch (Exception e) {
+                            Log.e(TAG, name + " failed for item " + item.index, e);
+                            fail(item);
+                        }
+                        PerfMetrics.record("burst." + name + "_ms", (SystemClock.elapsedRealtimeNanos() - start) / 1e6);
+                    }
+                    if (out != null) {
+                        out.put(item);
+                    } else {
+                        deliver(item);
+                    }
+                    if (item == END) return;
+                }
+            } catch (InterruptedException ignored) {
+                // cancelled
+            }
+        }, "pipeline-" + name);
+        threads.add(thread);
+        thread.start();
+    }
+
+    private void decode(Item item) {
+        Bitmap frame = CaptureHandoff.decode(item.capture, DECODE_MIN_SIDE);
+        if (frame == null) throw new IllegalStateException("Undecodable capture");
+        item.frame = frame;
+        item.width = frame.getWidth();
+        item.height = frame.getHeight();
+        float scale = (float) THUMBNAIL_MAX_SIDE / Math.max(item.width, item.height);
+        item.thumbnail = Bitmap.createScaledBitmap(frame, Math.round(item.width * scale),
+                Math.round(item.height * scale), true);
+    }
+
+    private void preprocess(Item item) throws IOException, InterruptedException {
+        YOLOv5Classifier detector = detector();
+        ByteBuffer input = freeInputs.take();
+        try {
+            detector.preprocess(item.frame, input);
+        } catch (RuntimeException e) {
+            freeInputs.put(input);
+            throw e;
+        }
+        item.input = input;
+        item.frame.recycle();
+        item.frame = null;
+    }
+
+    private void infer(Item item) throws InterruptedException {
+        float[][][] output = freeOutputs.take();
+        try {
+            detector.infer(item.input, output);
+        } catch (RuntimeException e) {
+            freeOutputs.put(output);
+            throw e;
+        } finally {
+            freeInputs.put(item.input);
+            item.input = null;
+        }
+        item.output = output;
+    }
+
+    private void postprocess(Item item) throws InterruptedException {
+        try {
+            item.results = detector.postprocess(item.output, item.width, item.height, options);
+        } finally {
+            freeOutputs.put(item.output);
+            item.output = null;
+        }
+    }
+
+    // Loads the shared detector and fills the buffer pools on first use
+    private synchronized YOLOv5Classifier detector() throws IOException {
+        if (detector == null) {
+            YOLOv5Classifier loaded = DetectorProvider.getInstance(appContext).get(DetectionUseCase.STILL);
+            for (int i = 0; i < BUFFERS; i++) {
+                freeInputs.add(loaded.newInputBuffer());
+                freeOutputs.add(loaded.newOutputBuffer());
+            }
+            YOLOv5Classifier.Options opts = new YOLOv5Classifier.Options(0.4f, MAX_RESULTS);
+            opts.classMask = DetectionClassPreset.currentMask(appContext, loaded.getLabels());
+            options = opts;
+            detector = loaded;
+        }
+        return detector;
+    }
+
+    // Drops whatever an item still holds so the rest of the burst keeps going
+    private void fail(Item item) {
+        item.failed = true;
+        if (item.frame != null) {
+            item.frame.recycle();
+            item.frame = null;
+        }
+        if (item.input != null) {
+            freeInputs.offer(item.input);
+            item.input = null;
+        }
+        if (item.output != null) {
+            freeOutputs.offer(item.output);
+            item.output = null;
+        }
+    }
+
+    private void deliver(Item item) {
+        if (cancelled) return;
+        if (item == END) {
+            long elapsed = Math.max(1, SystemClock.elapsedRealtime() - firstSubmitAt);
+            int count = submittedCount;
+            double imagesPerSecond = count * 1000.0 / elapsed;
+            if (count > 0) {
+                PerfMetrics.record("burst.images_per_s", imagesPerSecond);
+                PerfMetrics.event("burst", count + " images in " + elapsed + " ms");
+            }
+            mainHandler.post(() -> {
+                if (!cancelled) listener.onFinished(count, imagesPerSecond);
+            });
+        } else {
+            mainHandler.post(() -> {
+                if (!cancelled) listener.onItemDone(item);
+            });
+        }
+    }
+}
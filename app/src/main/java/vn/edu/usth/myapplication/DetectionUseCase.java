@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: DetectionUseCase.java
+ * Last Modified: 18/10/2026 23:40
+ */
+
+package vn.edu.usth.myapplication;
+
+// What a detector is wanted for. Each use case has a latency budget: DetectorProvider picks
+// the largest bundled model that fits it, and for the live preview InferenceScheduler
+// judges measured latency against the same number. Plain Java so both can use it on the JVM.
+public enum DetectionUseCase {
+    // Camera preview: has to keep up with the frames
+    LIVE(60),
+    // Photos and bursts: accuracy matters more than speed
+    STILL(1000);
+
+    final double latencyBudgetMs;
+
+    DetectionUseCase(double latencyBudgetMs) {
+        this.latencyBudgetMs = latencyBudgetMs;
+    }
+}
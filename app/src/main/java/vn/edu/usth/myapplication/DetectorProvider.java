@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: DetectorProvider.java
+ * Last Modified: 18/10/2026 21:30
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Owns the YOLOv5Classifiers the app uses, one per model variant. Loading a model maps a
+// large asset and builds the interpreter, so each variant is loaded once (normally during
+// startup, off the main thread) instead of every time a screen opens. Screens must not
+// close them. Live detection gets its own instances, even of a variant stills also use:
+// it changes its interpreter's thread count with the device's load, and that rebuild must
+// not land on the interpreter photos are waiting for.
+//
+// Callers ask for a use case rather than a model: each use case has a latency budget, and
+// gets the largest bundled variant whose inference time fits it. Once the use case's own
+// instance of a variant has enough recent timings they replace the nominal estimate, so
+// live runs at reduced threads don't count against stills (and the tile pool, with
+// instances of its own, counts against neither). Loaded variants stay cached, so the
+// choice can change at any time without a restart.
+public class DetectorProvider {
+
+    private static final String TAG = "DetectorProvider";
+    static final String DEFAULT_MODEL = "yolov5s-fp16.tflite";
+    // Recent inferences needed before they replace a variant's nominal latency
+    private static final int MIN_TIMINGS = 5;
+
+    private static volatile DetectorProvider instance;
+
+    private final Context appContext;
+    private final Map<ModelVariant, YOLOv5Classifier> classifiers = new EnumMap<>(ModelVariant.class);
+    private final Map<ModelVariant, YOLOv5Classifier> liveClassifiers = new EnumMap<>(ModelVariant.class);
+    private Set<String> bundledAssets;
+
+    private DetectorProvider(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    public static DetectorProvider getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DetectorProvider.class) {
+                if (instance == null) {
+                    instance = new DetectorProvider(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    // The detector for a use case, loaded on first use; blocks, so call it off the main thread
+    public synchronized YOLOv5Classifier get(DetectionUseCase useCase) throws IOException {
+        return useCase == DetectionUseCase.LIVE ? getLive(1) : get(select(useCase));
+    }
+
+    // The live detector for a share of the LIVE budget (see InferenceScheduler.Level); the
+    // caller may change its thread count
+    public synchronized YOLOv5Classifier getLive(double budgetScale) throws IOException {
+        return load(liveClassifiers, select(DetectionUseCase.LIVE, budgetScale));
+    }
+
+    public synchronized YOLOv5Classifier get(ModelVariant variant) throws IOException {
+        return load(classifiers, variant);
+    }
+
+    private YOLOv5Classifier load(Map<ModelVariant, YOLOv5Classifier> cache, ModelVariant variant) throws IOException {
+        YOLOv5Classifier classifier = cache.get(variant);
+        if (classifier == null) {
+            long start = SystemClock.elapsedRealtime();
+            classifier = new YOLOv5Classifier(appContext.getAssets(), variant.assetName);
+            PerfMetrics.record("detector.load_ms", SystemClock.elapsedRealtime() - start);
+            cache.put(variant, classifier);
+        }
+        return classifier;
+    }
+
+    synchronized ModelVariant select(DetectionUseCase useCase) throws IOException {
+        return select(useCase, 1);
+    }
+
+    // Largest bundled variant expected to fit budgetScale x the use case's budget; the
+    // smallest bundled one if none does
+    synchronized ModelVariant select(DetectionUseCase useCase, double budgetScale) throws IOException {
+        double budgetMs = useCase.latencyBudgetMs * budgetScale;
+        ModelVariant chosen = null;
+        for (ModelVariant variant : ModelVariant.values()) {
+            if (!isBundled(variant)) continue;
+            if (chosen == null || expectedLatencyMs(useCase, variant) <= budgetMs) {
+                chosen = variant;
+            }
+        }
+        if (chosen == null) throw new IOException("No detector model in assets");
+        return chosen;
+    }
+
+    private double expectedLatencyMs(DetectionUseCase useCase, ModelVariant variant) {
+        YOLOv5Classifier loaded = (useCase == DetectionUseCase.LIVE ? liveClassifiers : classifiers).get(variant);
+        if (loaded != null && loaded.getRecentInferenceCount() >= MIN_TIMINGS) {
+            return loaded.getRecentInferenceMs();
+        }
+        return variant.nominalLatencyMs;
+    }
+
+    private boolean isBundled(ModelVariant variant) {
+        if (bundledAssets == null) {
+            bundledAssets = new HashSet<>();
+            try {
+                String[] names = appContext.getAssets().list("");
+                if (names != null) bundledAssets.addAll(Arrays.asList(names));
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot list assets", e);
+            }
+        }
+        return bundledAssets.contains(variant.assetName);
+    }
+
+    // Loads the still-photo model, and the live one when live detection is on, and runs one
+    // throwaway inference each so the first real detection doesn't pay for the
+    // interpreter's lazy allocations
+    public void warmUp() throws IOException {
+        warmUp(get(DetectionUseCase.STILL));
+        SettingsStore settings = SettingsStore.getInstance(appContext);
+        if (settings.get(SettingsStore.LIVE_DETECTION) || settings.get(SettingsStore.AUTO_CAPTURE)) {
+            warmUp(get(DetectionUseCase.LIVE));
+        }
+    }
+
+    private static void warmUp(YOLOv5Classifier detector) {
+        Bitmap blank = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+        long start = SystemClock.elapsedRealtime();
+        detector.detect(blank);
+        PerfMetrics.record("detector.warmup_ms", SystemClock.elapsedRealtime() - start);
+        blank.recycle();
+    }
+}
@@ -9,11 +9,16 @@
 package vn.edu.usth.myapplication;
 
 import android.Manifest;
+import android.content.Context;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
+import android.util.Size;
 import android.view.LayoutInflater;
 import android.view.ScaleGestureDetector;
 import android.view.View;
@@ -26,14 +31,19 @@ import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.camera.core.Camera;
 import androidx.camera.core.CameraControl;
 import androidx.camera.core.CameraInfo;
 import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
+import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.core.ZoomState;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
@@ -46,7 +56,6 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.File;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -56,9 +65,20 @@ import java.util.concurrent.Executors;
 public class EmbeddedCameraFragment extends Fragment {
 
     private static final String TAG = "EmbeddedCameraFragment";
+    // Smart capture fires anyway if no sharp frame turns up within this time
+    private static final long SMART_CAPTURE_TIMEOUT_MS = 1500;
+    // Captures straight to memory; false restores the write-then-decode file path, e.g. to
+    // compare capture.shutter_to_result_ms between the two
+    private static final boolean IN_MEMORY_CAPTURE = true;
+    // Photos per burst (long press on the shutter)
+    private static final int BURST_SIZE = 5;
+    // Analysis frames for a 640 model input; other live models scale this (see analysisSize)
+    private static final Size ANALYSIS_SIZE = new Size(640, 480);
 
     private ImageCapture imageCapture;
     private ExecutorService cameraExecutor;
+    // Copies in-memory captures off the main thread without queueing behind analysis frames
+    private ExecutorService captureExecutor;
     private PreviewView previewView;
     private View permissionLayout;
     private CameraSelector cameraSelector = CameraSelector.DEFAULT_BACK_CAMERA;
@@ -71,6 +91,24 @@ public class EmbeddedCameraFragment extends Fragment {
     private Button btnZoom1x, btnZoom2x;
     private ScaleGestureDetector scaleGestureDetector;
     private float currentZoomRatio = 1.0f;
+    private boolean flashEnabled = false;
+    private boolean liveDetectionEnabled = false;
+    private boolean autoCaptureEnabled = false;
+    private final AutoCaptureTrigger autoCaptureTrigger = new AutoCaptureTrigger();
+    private DetectionOverlayView detectionOverlay;
+    private LiveDetectionAnalyzer liveAnalyzer;
+    private InferenceScheduler inferenceScheduler;
+    private ProcessCameraProvider cameraProvider;
+    private ImageAnalysis imageAnalysis;
+    // Analysis resolution the current stream was bound with, and the one matching the live
+    // model's input as last reported by the analyzer
+    private Size boundAnalysisSize;
+    private Size liveAnalysisSize = ANALYSIS_SIZE;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Runnable smartCaptureTimeout;
+    // Shots still to take in the running burst, 0 when there is none
+    private int burstRemaining = 0;
+    private int burstTaken = 0;
 
     private final ActivityResultLauncher<String[]> requestPermissionsLauncher =
             registerForActivityResult(new ActivityResultContracts.RequestMultiplePermissions(), result -> {
@@ -89,12 +127,30 @@ public class EmbeddedCameraFragment extends Fragment {
                 }
             });
 
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        // Created once per fragment, not per view: the fragment survives trips to other
+        // screens and only shuts these down in onDestroy
+        cameraExecutor = Executors.newSingleThreadExecutor();
+        captureExecutor = Executors.newSingleThreadExecutor();
+
+        // Outlives analyzer rebinds and view recreation, so what it learned about the device
+        // carries over
+        inferenceScheduler = new InferenceScheduler(new SystemDeviceConditions(requireContext()));
+        inferenceScheduler.setListener((level, reason) -> {
+            PerfMetrics.event("scheduler", level + " (" + reason + ")");
+            PerfMetrics.record("scheduler.level", level.ordinal());
+        });
+    }
+
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_camera, container, false);
 
         previewView = view.findViewById(R.id.preview_view);
+        detectionOverlay = view.findViewById(R.id.detection_overlay);
         permissionLayout = view.findViewById(R.id.permission_layout);
         zoomSlider = view.findViewById(R.id.zoom_slider);
         txtZoomLevel = view.findViewById(R.id.txt_zoom_level);
@@ -104,12 +160,18 @@ public class EmbeddedCameraFragment extends Fragment {
 
         // Camera controls
         FloatingActionButton btnCapture = view.findViewById(R.id.btn_capture);
+        FloatingActionButton btnSmartCapture = view.findViewById(R.id.btn_smart_capture);
         FloatingActionButton btnSwitchCamera = view.findViewById(R.id.btn_switch_camera);
         FloatingActionButton btnGallery = view.findViewById(R.id.btn_gallery);
         MaterialButton btnGrantPermission = view.findViewById(R.id.btn_grant_permission);
 
         // Set up button click listeners
         btnCapture.setOnClickListener(v -> takePhoto());
+        btnCapture.setOnLongClickListener(v -> {
+            startBurst();
+            return true;
+        });
+        btnSmartCapture.setOnClickListener(v -> smartCapture());
         btnSwitchCamera.setOnClickListener(v -> switchCamera());
         btnGallery.setOnClickListener(v -> openGallery());
         btnGrantPermission.setOnClickListener(v -> requestAppPermissions());
@@ -118,8 +180,6 @@ public class EmbeddedCameraFragment extends Fragment {
         setupZoomControl();
         setupPinchToZoom();
 
-        cameraExecutor = Executors.newSingleThreadExecutor();
-
         // Check permissions and start camera
         if (allPermissionsGranted()) {
             startCamera();
@@ -130,6 +190,30 @@ public class EmbeddedCameraFragment extends Fragment {
         return view;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        // Tied to the view, not the fragment: the fragment survives trips to other screens
+        // and would otherwise add another set of observers every time the view is recreated.
+        // Follow the flash setting as it changes instead of re-reading it on every shot.
+        SettingsStore.getInstance(requireContext()).observe(getViewLifecycleOwner(), SettingsStore.FLASH_MODE, enabled -> {
+            flashEnabled = enabled;
+            updateFlashMode();
+        });
+        SettingsStore.getInstance(requireContext()).observe(getViewLifecycleOwner(), SettingsStore.LIVE_DETECTION, enabled -> {
+            liveDetectionEnabled = enabled;
+            updateFrameAnalysis();
+            detectionOverlay.clear();
+            detectionOverlay.setVisibility(enabled ? View.VISIBLE : View.GONE);
+        });
+        SettingsStore.getInstance(requireContext()).observe(getViewLifecycleOwner(), SettingsStore.AUTO_CAPTURE, enabled -> {
+            autoCaptureEnabled = enabled;
+            autoCaptureTrigger.reset();
+            updateFrameAnalysis();
+        });
+    }
+
     private void setupZoomControl() {
         zoomSlider.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override
@@ -248,7 +332,7 @@ public class EmbeddedCameraFragment extends Fragment {
 
         cameraProviderFuture.addListener(() -> {
             try {
-                ProcessCameraProvider cameraProvider = cameraProviderFuture.get();
+                cameraProvider = cameraProviderFuture.get();
                 bindCameraUseCases(cameraProvider);
             } catch (Exception e) {
                 Log.e(TAG, "Use case binding failed", e);
@@ -269,10 +353,17 @@ public class EmbeddedCameraFragment extends Fragment {
                 .setTargetRotation(previewView.getDisplay().getRotation())
                 .build();
 
+        stopFrameAnalysis();
+        imageAnalysis = isFrameAnalysisNeeded() ? buildFrameAnalysis() : null;
+
         try {
             cameraProvider.unbindAll();
-            camera = cameraProvider.bindToLifecycle(
-                    this, cameraSelector, preview, imageCapture);
+            if (imageAnalysis != null) {
+                camera = cameraProvider.bindToLifecycle(
+                        this, cameraSelector, preview, imageCapture, imageAnalysis);
+            } else {
+                camera = cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageCapture);
+            }
 
             // Get camera control for flash and zoom
             cameraControl = camera.getCameraControl();
@@ -290,6 +381,162 @@ public class EmbeddedCameraFragment extends Fragment {
         }
     }
 
+    // Low-resolution frames for live detection, auto-capture and smart capture, sized to the
+    // live model's input: larger frames are squashed to it anyway, so they would only make
+    // toBitmap() and the sharpness score dearer. The scheduler lowers the cost of an
+    // inference by picking a smaller live model, which then shrinks the frames too.
+    private ImageAnalysis buildFrameAnalysis() {
+        Size size = liveAnalysisSize;
+        boundAnalysisSize = size;
+        ImageAnalysis analysis = new ImageAnalysis.Builder()
+                .setResolutionSelector(new ResolutionSelector.Builder()
+                        .setResolutionStrategy(new ResolutionStrategy(size,
+                                ResolutionStrategy.FALLBACK_RULE_CLOSEST_HIGHER_THEN_LOWER))
+                        .build())
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .setTargetRotation(previewView.getDisplay().getRotation())
+                .build();
+        boolean mirrored = cameraSelector == CameraSelector.DEFAULT_FRONT_CAMERA;
+        // Runs seen through an earlier stream (or before leaving the screen) don't count
+        autoCaptureTrigger.reset();
+        liveAnalyzer = new LiveDetectionAnalyzer(requireContext(), inferenceScheduler, new LiveDetectionAnalyzer.Listener() {
+            @Override
+            public void onDetections(List<YOLOv5Classifier.Result> results, int width, int height, boolean inferred) {
+                if (liveDetectionEnabled && detectionOverlay != null) {
+                    detectionOverlay.setPreviewResults(width, height, mirrored, results);
+                }
+                // Tracked and skipped frames only repeat the last detection, so they must not
+                // count towards the trigger's run
+                if (autoCaptureEnabled && inferred && autoCaptureTrigger.onFrame(results, SystemClock.elapsedRealtime())) {
+                    autoCapture();
+                }
+            }
+
+            @Override
+            public void onModelInputChanged(int inputWidth, int inputHeight) {
+                onLiveModelInputChanged(inputWidth);
+            }
+        });
+        updateAnalyzerDetection();
+        analysis.setAnalyzer(cameraExecutor, liveAnalyzer);
+        return analysis;
+    }
+
+    // Keeps the ANALYSIS_SIZE aspect with the long side at the model's input width
+    private static Size analysisSize(int inputWidth) {
+        return new Size(inputWidth, Math.round(inputWidth * ANALYSIS_SIZE.getHeight() / (float) ANALYSIS_SIZE.getWidth()));
+    }
+
+    // Detection frequency, model and threads follow the scheduler's level inside the
+    // analyzer; a model with another input size needs the analysis use case rebound at the
+    // matching resolution (the preview keeps running)
+    private void onLiveModelInputChanged(int inputWidth) {
+        liveAnalysisSize = analysisSize(inputWidth);
+        if (!isAdded() || cameraProvider == null || imageAnalysis == null) return;
+        // A rebind would drop an armed smart capture; the next bind picks the size up
+        if (liveAnalysisSize.equals(boundAnalysisSize) || smartCaptureTimeout != null) return;
+        try {
+            cameraProvider.unbind(imageAnalysis);
+            stopFrameAnalysis();
+            imageAnalysis = buildFrameAnalysis();
+            camera = cameraProvider.bindToLifecycle(this, cameraSelector, imageAnalysis);
+        } catch (Exception e) {
+            Log.e(TAG, "Analysis rebind failed", e);
+            imageAnalysis = null;
+            stopFrameAnalysis();
+        }
+    }
+
+    // The analysis stream costs a second camera stream plus a sharpness pass on every frame,
+    // so it is bound only while something reads it
+    private boolean isFrameAnalysisNeeded() {
+        return liveDetectionEnabled || autoCaptureEnabled || smartCaptureTimeout != null;
+    }
+
+    // Binds or unbinds the analysis stream to match isFrameAnalysisNeeded(); the preview
+    // and capture use cases keep running
+    private void updateFrameAnalysis() {
+        if (!isAdded() || cameraProvider == null || camera == null) return;
+        boolean needed = isFrameAnalysisNeeded();
+        try {
+            if (needed && imageAnalysis == null) {
+                imageAnalysis = buildFrameAnalysis();
+                camera = cameraProvider.bindToLifecycle(this, cameraSelector, imageAnalysis);
+            } else if (!needed && imageAnalysis != null) {
+                cameraProvider.unbind(imageAnalysis);
+                imageAnalysis = null;
+                stopFrameAnalysis();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Analysis rebind failed", e);
+            imageAnalysis = null;
+            stopFrameAnalysis();
+        }
+        updateAnalyzerDetection();
+    }
+
+    // Auto-capture needs detections even when the boxes aren't shown
+    private void updateAnalyzerDetection() {
+        if (liveAnalyzer != null) liveAnalyzer.setDetectionEnabled(liveDetectionEnabled || autoCaptureEnabled);
+    }
+
+    // The trigger saw the same object hold steady; shoot it and let the preview go straight
+    // on to translation
+    private void autoCapture() {
+        if (imageCapture == null || burstRemaining > 0 || !isResumed()) return;
+        cancelSmartCapture();
+        long seenAt = autoCaptureTrigger.getFirstSeenAt();
+        PerfMetrics.record("camera.auto_capture_wait_ms", SystemClock.elapsedRealtime() - seenAt);
+        takePhotoInMemory(SystemClock.elapsedRealtime(), seenAt);
+    }
+
+    private void stopFrameAnalysis() {
+        cancelSmartCapture();
+        if (liveAnalyzer != null) {
+            liveAnalyzer.stop();
+            liveAnalyzer = null;
+        }
+        if (detectionOverlay != null) detectionOverlay.clear();
+    }
+
+    // Instead of firing the shutter blind, waits for an analysis frame that is the sharpest
+    // of the last few (the hand has steadied) and captures then. The full-resolution photo
+    // has to come from ImageCapture, so the analysis ring picks the moment, not the pixels.
+    private void smartCapture() {
+        cancelSmartCapture();
+        long armedAt = SystemClock.elapsedRealtime();
+        smartCaptureTimeout = () -> {
+            smartCaptureTimeout = null;
+            if (liveAnalyzer != null) liveAnalyzer.cancelSharpFrame();
+            PerfMetrics.event("camera", "smart capture timed out");
+            takePhoto();
+        };
+        mainHandler.postDelayed(smartCaptureTimeout, SMART_CAPTURE_TIMEOUT_MS);
+        // Armed now, so this binds the analysis stream if nothing else had it bound. It stays
+        // bound until the screen rebinds (after the capture, or on a capture error).
+        updateFrameAnalysis();
+        if (liveAnalyzer == null) {
+            cancelSmartCapture();
+            takePhoto();
+            return;
+        }
+        liveAnalyzer.awaitSharpFrame(() -> {
+            if (smartCaptureTimeout == null || !isAdded()) return;
+            mainHandler.removeCallbacks(smartCaptureTimeout);
+            smartCaptureTimeout = null;
+            PerfMetrics.record("camera.smart_capture_wait_ms", SystemClock.elapsedRealtime() - armedAt);
+            takePhoto();
+        });
+    }
+
+    private void cancelSmartCapture() {
+        if (smartCaptureTimeout != null) {
+            mainHandler.removeCallbacks(smartCaptureTimeout);
+            smartCaptureTimeout = null;
+        }
+        if (liveAnalyzer != null) liveAnalyzer.cancelSharpFrame();
+    }
+
     private void initializeZoomControl() {
         if (cameraInfo != null) {
             ZoomState zoomState = cameraInfo.getZoomState().getValue();
@@ -317,7 +564,6 @@ public class EmbeddedCameraFragment extends Fragment {
 
     private void updateFlashMode() {
         if (cameraControl != null && imageCapture != null) {
-            boolean flashEnabled = SettingsFragment.isFlashEnabled(requireContext());
             if (flashEnabled) {
                 imageCapture.setFlashMode(ImageCapture.FLASH_MODE_ON);
             } else {
@@ -331,15 +577,132 @@ public class EmbeddedCameraFragment extends Fragment {
             Toast.makeText(requireContext(), "Camera is not ready", Toast.LENGTH_SHORT).show();
             return;
         }
+        long shutterAt = SystemClock.elapsedRealtime();
+        if (IN_MEMORY_CAPTURE) {
+            takePhotoInMemory(shutterAt, 0);
+        } else {
+            takePhotoToFile(shutterAt);
+        }
+    }
+
+    // The JPEG stays in memory and goes to the preview through CaptureHandoff; it is only
+    // written to disk if the user saves or translates. seenAt is set for auto-capture: the
+    // preview then goes on to translation by itself.
+    private void takePhotoInMemory(long shutterAt, long seenAt) {
+        Context appContext = requireContext().getApplicationContext();
+        imageCapture.takePicture(captureExecutor, new ImageCapture.OnImageCapturedCallback() {
+            @Override
+            public void onCaptureSuccess(@NonNull ImageProxy image) {
+                CaptureHandoff.Capture capture;
+                try {
+                    capture = CaptureHandoff.getInstance(appContext).put(image, shutterAt);
+                } finally {
+                    image.close();
+                }
+                mainHandler.post(() -> {
+                    if (!isAdded()) return;
+                    Bundle args = new Bundle();
+                    args.putString("handoff_id", capture.id);
+                    args.putLong("timestamp", System.currentTimeMillis());
+                    args.putLong("shutter_at", shutterAt);
+                    args.putBoolean("is_temp", true);
+                    if (seenAt > 0) {
+                        args.putBoolean("auto_translate", true);
+                        args.putLong("seen_at", seenAt);
+                    }
+                    NavController navController = Navigation.findNavController(requireActivity(), R.id.nav_host_fragment);
+                    navController.navigate(R.id.nav_photo_preview, args);
+                });
+            }
+
+            @Override
+            public void onError(@NonNull ImageCaptureException exception) {
+                mainHandler.post(() -> {
+                    if (isAdded()) showCaptureError(exception);
+                });
+            }
+        });
+    }
+
+    // Shoots BURST_SIZE photos back to back, each kept in memory and fed to a
+    // DetectionPipeline, so earlier shots are decoded and detected while later ones are
+    // taken. The review screen opens after the last shot and fills in as results arrive.
+    private void startBurst() {
+        if (imageCapture == null) {
+            Toast.makeText(requireContext(), "Camera is not ready", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (burstRemaining > 0) return;
+        cancelSmartCapture();
+        BurstSession session = BurstSession.getInstance();
+        DetectionPipeline pipeline = new DetectionPipeline(requireContext(), session);
+        session.begin(pipeline, BURST_SIZE);
+        pipeline.start();
+        burstRemaining = BURST_SIZE;
+        burstTaken = 0;
+        Toast.makeText(requireContext(), R.string.burst_started, Toast.LENGTH_SHORT).show();
+        takeBurstPhoto(pipeline);
+    }
 
-        // Update flash mode before capture
-        updateFlashMode();
+    private void takeBurstPhoto(DetectionPipeline pipeline) {
+        long shutterAt = SystemClock.elapsedRealtime();
+        imageCapture.takePicture(captureExecutor, new ImageCapture.OnImageCapturedCallback() {
+            @Override
+            public void onCaptureSuccess(@NonNull ImageProxy image) {
+                CaptureHandoff.Capture capture;
+                try {
+                    capture = CaptureHandoff.copyOf(image, shutterAt);
+                } finally {
+                    image.close();
+                }
+                try {
+                    // Blocks while the pipeline is full, which paces the burst to it
+                    pipeline.submit(capture);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                mainHandler.post(() -> onBurstPhotoTaken(pipeline, true));
+            }
 
-        String name = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss-SSS", Locale.US)
-                .format(System.currentTimeMillis());
+            @Override
+            public void onError(@NonNull ImageCaptureException exception) {
+                mainHandler.post(() -> {
+                    if (isAdded()) showCaptureError(exception);
+                    onBurstPhotoTaken(pipeline, false);
+                });
+            }
+        });
+    }
 
+    private void onBurstPhotoTaken(DetectionPipeline pipeline, boolean taken) {
+        if (taken) burstTaken++;
+        // A failed shot ends the burst with what has been taken so far
+        burstRemaining = taken ? burstRemaining - 1 : 0;
+        if (!isAdded()) {
+            burstRemaining = 0;
+            BurstSession.getInstance().clear();
+            return;
+        }
+        if (burstRemaining > 0) {
+            takeBurstPhoto(pipeline);
+            return;
+        }
+        pipeline.finish();
+        BurstSession session = BurstSession.getInstance();
+        if (burstTaken == 0) {
+            session.clear();
+            return;
+        }
+        session.setExpected(burstTaken);
+        NavController navController = Navigation.findNavController(requireActivity(), R.id.nav_host_fragment);
+        navController.navigate(R.id.nav_burst_review);
+    }
+
+    private void takePhotoToFile(long shutterAt) {
         // Save to temporary cache directory instead of gallery
-        File photoFile = new File(requireContext().getCacheDir(), "temp_" + name + ".jpg");
+        CaptureCacheManager cacheManager = CaptureCacheManager.getInstance(requireContext());
+        File photoFile = cacheManager.newCaptureFile();
         ImageCapture.OutputFileOptions outputOptions =
                 new ImageCapture.OutputFileOptions.Builder(photoFile).build();
 
@@ -349,6 +712,7 @@ public class EmbeddedCameraFragment extends Fragment {
                 new ImageCapture.OnImageSavedCallback() {
                     @Override
                     public void onImageSaved(@NonNull ImageCapture.OutputFileResults output) {
+                        cacheManager.onCaptureWritten(photoFile);
                         Uri uri = Uri.fromFile(photoFile);
                         long ts = System.currentTimeMillis();
 
@@ -356,6 +720,7 @@ public class EmbeddedCameraFragment extends Fragment {
                         Bundle args = new Bundle();
                         args.putString("photo_uri", uri.toString());
                         args.putLong("timestamp", ts);
+                        args.putLong("shutter_at", shutterAt);
                         args.putBoolean("is_temp", true); // Mark as temporary photo
                         NavController navController = Navigation.findNavController(requireActivity(), R.id.nav_host_fragment);
                         navController.navigate(R.id.nav_photo_preview, args);
@@ -363,20 +728,26 @@ public class EmbeddedCameraFragment extends Fragment {
 
                     @Override
                     public void onError(@NonNull ImageCaptureException exception) {
-                        Log.e(TAG, "Photo capture failed: " + exception.getMessage(), exception);
-                        String errorMsg = "Photo capture failed!";
-                        if (exception.getMessage() != null && exception.getMessage().contains("CAMERA_CLOSED")) {
-                            errorMsg = "Camera was closed. Please try again.";
-                            startCamera(); // Restart camera
-                        } else if (exception.getMessage() != null && exception.getMessage().contains("FILE_IO_ERROR")) {
-                            errorMsg = "Storage error. Check storage permissions.";
-                        }
-                        Toast.makeText(requireContext(), errorMsg, Toast.LENGTH_LONG).show();
+                        showCaptureError(exception);
                     }
                 }
         );
     }
 
+    private void showCaptureError(ImageCaptureException exception) {
+        Log.e(TAG, "Photo capture failed: " + exception.getMessage(), exception);
+        String errorMsg = "Photo capture failed!";
+        if (exception.getMessage() != null && exception.getMessage().contains("CAMERA_CLOSED")) {
+            errorMsg = "Camera was closed. Please try again.";
+            startCamera(); // Restart camera
+        } else if (exception.getMessage() != null && exception.getMessage().contains("FILE_IO_ERROR")) {
+            errorMsg = "Storage error. Check storage permissions.";
+        }
+        Toast.makeText(requireContext(), errorMsg, Toast.LENGTH_LONG).show();
+        // A smart capture may have bound the analysis stream just for itself
+        updateFrameAnalysis();
+    }
+
     private void switchCamera() {
         cameraSelector = cameraSelector == CameraSelector.DEFAULT_BACK_CAMERA ?
                 CameraSelector.DEFAULT_FRONT_CAMERA : CameraSelector.DEFAULT_BACK_CAMERA;
@@ -409,8 +780,12 @@ public class EmbeddedCameraFragment extends Fragment {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        stopFrameAnalysis();
         if (cameraExecutor != null) {
             cameraExecutor.shutdown();
         }
+        if (captureExecutor != null) {
+            captureExecutor.shutdown();
+        }
     }
 }
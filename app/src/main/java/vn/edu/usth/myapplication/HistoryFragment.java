@@ -50,11 +50,21 @@ public class HistoryFragment extends Fragment {
         emptyState = view.findViewById(R.id.empty_state);
 
         setupRecyclerView();
-        loadPhotos();
 
         return view;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        // Register before taking the snapshot so no change can slip in between;
+        // a change that lands in both is applied idempotently below
+        PhotoDatabase photoDatabase = PhotoDatabase.getInstance(requireContext());
+        photoDatabase.observe(getViewLifecycleOwner(), this::applyChanges);
+        loadPhotos(photoDatabase);
+    }
+
     private void setupRecyclerView() {
         photoAdapter = new PhotoHistoryAdapter(photoList);
         photoAdapter.setOnPhotoClickListener(this::showPhotoDialog);
@@ -93,17 +103,63 @@ public class HistoryFragment extends Fragment {
         dialog.show();
     }
 
-    private void loadPhotos() {
+    private void loadPhotos(PhotoDatabase photoDatabase) {
         photoList.clear();
-        photoList.addAll(new PhotoDatabase(requireContext()).getAll());
+        photoList.addAll(photoDatabase.getAll());
+        photoAdapter.notifyDataSetChanged();
+        updateVisibility();
+    }
 
+    // Apply only the rows that changed instead of reloading the whole grid
+    private void applyChanges(List<PhotoDatabase.Change> changes) {
+        for (PhotoDatabase.Change change : changes) {
+            int index = indexOf(change.getId());
+            switch (change.type) {
+                case INSERTED:
+                case UPDATED:
+                    if (index >= 0) {
+                        photoList.remove(index);
+                        photoAdapter.notifyItemRemoved(index);
+                    }
+                    int position = insertionIndex(change.entry);
+                    photoList.add(position, change.entry);
+                    photoAdapter.notifyItemInserted(position);
+                    break;
+                case DELETED:
+                    if (index >= 0) {
+                        photoList.remove(index);
+                        photoAdapter.notifyItemRemoved(index);
+                    }
+                    break;
+            }
+        }
+        updateVisibility();
+    }
+
+    private int indexOf(String id) {
+        for (int i = 0; i < photoList.size(); i++) {
+            if (photoList.get(i).getId().equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Newest first, same order as PhotoDatabase.getAll()
+    private int insertionIndex(PhotoEntry entry) {
+        int i = 0;
+        while (i < photoList.size() && photoList.get(i).getDateTaken() >= entry.getDateTaken()) {
+            i++;
+        }
+        return i;
+    }
+
+    private void updateVisibility() {
         if (photoList.isEmpty()) {
             showEmptyState();
         } else {
             showPhotoGrid();
         }
-
-        photoAdapter.notifyDataSetChanged();
     }
 
     private void showEmptyState() {
@@ -115,10 +171,4 @@ public class HistoryFragment extends Fragment {
         emptyState.setVisibility(View.GONE);
         recyclerPhotos.setVisibility(View.VISIBLE);
     }
-
-    @Override
-    public void onResume() {
-        super.onResume();
-        loadPhotos(); // Refresh photos when fragment resumes
-    }
 }
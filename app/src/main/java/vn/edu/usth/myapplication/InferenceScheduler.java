@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: InferenceScheduler.java
+ * Last Modified: 18/10/2026 20:40
+ */
+
+package vn.edu.usth.myapplication;
+
+import java.util.Locale;
+
+// Picks how hard live detection may work, from the device's thermal status, battery saver
+// and the rolling inference latency. Each Level sets how often the detector runs, how much
+// of the live latency budget the model may take (a lower share picks a smaller live model,
+// which is what actually makes an inference cheaper) and the interpreter's thread count.
+// Getting hotter or slower steps down right away; stepping back up needs the better
+// conditions to hold for a while, and goes one level at a time, so the level doesn't flap
+// around a threshold.
+// Plain Java (conditions come in through DeviceConditions) so the policy can be tested on
+// the JVM; the owner logs the decisions it hears about. Not thread-safe; the live analyzer
+// drives it from one thread.
+public class InferenceScheduler {
+
+    // Same values as PowerManager.THERMAL_STATUS_*
+    static final int THERMAL_NONE = 0;
+    static final int THERMAL_LIGHT = 1;
+    static final int THERMAL_MODERATE = 2;
+    static final int THERMAL_SEVERE = 3;
+
+    // Inference latency the live preview aims for, the budget its model is picked by
+    static final double LATENCY_BUDGET_MS = DetectionUseCase.LIVE.latencyBudgetMs;
+    // Rolling mean above budget * SLOW steps down, below budget * FAST allows stepping up
+    private static final double SLOW = 1.5;
+    private static final double FAST = 0.6;
+    private static final int LATENCY_WINDOW = 10;
+    // Conditions are read at most this often (the thermal status is a binder call)
+    static final long EVALUATE_INTERVAL_MS = 1000;
+    // How long better conditions must last before stepping back up
+    static final long RECOVER_AFTER_MS = 10_000;
+
+    public enum Level {
+        FULL(5, 1f, 4),
+        REDUCED(8, 1f, 2),
+        LOW(12, 0.75f, 2),
+        MINIMAL(20, 0.5f, 1);
+
+        // Run the detector at least every this many analysis frames
+        public final int detectEveryNFrames;
+        // Share of the live use case's latency budget used to pick the live model
+        public final float liveBudgetScale;
+        public final int numThreads;
+
+        Level(int detectEveryNFrames, float liveBudgetScale, int numThreads) {
+            this.detectEveryNFrames = detectEveryNFrames;
+            this.liveBudgetScale = liveBudgetScale;
+            this.numThreads = numThreads;
+        }
+    }
+
+    public interface DeviceConditions {
+        // One of the THERMAL_* values (or higher)
+        int getThermalStatus();
+
+        boolean isPowerSaveMode();
+    }
+
+    public interface Listener {
+        void onLevelChanged(Level level, String reason);
+    }
+
+    private final DeviceConditions conditions;
+    private final double[] latencies = new double[LATENCY_WINDOW];
+    private int latencyCount = 0;
+    private int latencyNext = 0;
+    private Level level = Level.FULL;
+    private Listener listener;
+    private long lastEvaluatedAt = Long.MIN_VALUE / 2;
+    // Since when conditions have allowed a better level than the current one, -1 if not
+    private long betterSince = -1;
+
+    public InferenceScheduler(DeviceConditions conditions) {
+        this.conditions = conditions;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public void recordInference(double ms) {
+        latencies[latencyNext] = ms;
+        latencyNext = (latencyNext + 1) % LATENCY_WINDOW;
+        latencyCount = Math.min(latencyCount + 1, LATENCY_WINDOW);
+    }
+
+    // Mean of the recent inference times, 0 before any
+    public double getMeanLatency() {
+        if (latencyCount == 0) return 0;
+        double sum = 0;
+        for (int i = 0; i < latencyCount; i++) sum += latencies[i];
+        return sum / latencyCount;
+    }
+
+    /**
+     * Re-reads the conditions (at most every EVALUATE_INTERVAL_MS) and returns the level to
+     * run at. The listener hears about every change.
+     */
+    public Level evaluate(long nowMs) {
+        if (nowMs - lastEvaluatedAt < EVALUATE_INTERVAL_MS) return level;
+        lastEvaluatedAt = nowMs;
+
+        int thermal = conditions.getThermalStatus();
+        boolean powerSave = conditions.isPowerSaveMode();
+        double latency = getMeanLatency();
+
+        // The lightest level each input allows; the most restrictive one wins
+        int target = thermalFloor(thermal);
+        String reason = "thermal " + thermal;
+        if (powerSave && Level.REDUCED.ordinal() > target) {
+            target = Level.REDUCED.ordinal();
+            reason = "battery saver";
+        }
+        int current = level.ordinal();
+        if (latencyCount == LATENCY_WINDOW) {
+            if (latency > LATENCY_BUDGET_MS * SLOW && current + 1 > target) {
+                target = Math.min(current + 1, Level.values().length - 1);
+                reason = String.format(Locale.US, "latency %.0f ms", latency);
+            } else if (latency >= LATENCY_BUDGET_MS * FAST && current > target) {
+                // Not fast enough to afford more work; hold where we are
+                target = current;
+            }
+        } else if (current > target) {
+            // Not enough timings since the last change to judge the load yet
+            target = current;
+        }
+
+        if (target > current) {
+            betterSince = -1;
+            change(Level.values()[target], reason);
+        } else if (target < current) {
+            if (betterSince < 0) betterSince = nowMs;
+            if (nowMs - betterSince >= RECOVER_AFTER_MS) {
+                betterSince = -1;
+                change(Level.values()[current - 1], "recovered, " + reason);
+            }
+        } else {
+            betterSince = -1;
+        }
+        return level;
+    }
+
+    private static int thermalFloor(int thermal) {
+        if (thermal >= THERMAL_SEVERE) return Level.MINIMAL.ordinal();
+        if (thermal >= THERMAL_MODERATE) return Level.LOW.ordinal();
+        if (thermal >= THERMAL_LIGHT) return Level.REDUCED.ordinal();
+        return Level.FULL.ordinal();
+    }
+
+    private void change(Level next, String reason) {
+        level = next;
+        // Timings from the old level say nothing about the new one
+        latencyCount = 0;
+        latencyNext = 0;
+        if (listener != null) listener.onLevelChanged(next, reason);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: LiveDetectionAnalyzer.java
+ * Last Modified: 18/10/2026 16:20
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+
+import java.io.IOException;
+import java.util.List;
+
+// Live detection for the camera preview. The full detector runs only every few frames, or
+// sooner when a tracked box has lost confidence; frames in between just move the tracked
+// boxes along (see ObjectTracker). When a detection is due but the scene hasn't changed
+// since the last inferred frame (see SceneChangeGate), the previous results are kept and
+// the detector isn't run at all. A due detection also waits (briefly) for a frame that is
+// the sharpest of the last few, so hand-shake blur doesn't get inferred. How often the
+// detector runs, which live model it uses and with how many threads follows the
+// InferenceScheduler's level. Results go to the listener on the main thread, in pixels of
+// the upright analysis frame; so does each switch to a model with another input size, so
+// the camera can match the analysis resolution to it.
+//
+// Sharpness is measured on every frame even with detection off, for smart capture; the
+// camera screen only binds the analysis stream while detection or a smart capture needs it.
+public class LiveDetectionAnalyzer implements ImageAnalysis.Analyzer {
+
+    private static final String TAG = "LiveDetectionAnalyzer";
+    // Re-detect early once any tracked box has decayed below this confidence
+    private static final float MIN_TRACK_CONFIDENCE = 0.3f;
+    private static final int MAX_RESULTS = 5;
+    // Frames of sharpness history, and how long a due detection may wait for a sharp frame
+    private static final int SHARPNESS_WINDOW = 6;
+    private static final int MAX_SHARPNESS_WAIT = 3;
+
+    public interface Listener {
+        // inferred is true when the detector ran on this frame; otherwise the results are
+        // tracked (or kept) from an earlier detection
+        void onDetections(List<YOLOv5Classifier.Result> results, int imageWidth, int imageHeight, boolean inferred);
+
+        // The live model changed; frames larger than its input only cost conversion time
+        void onModelInputChanged(int inputWidth, int inputHeight);
+    }
+
+    private final Context appContext;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ObjectTracker tracker = new ObjectTracker();
+    private final SceneChangeGate sceneGate = new SceneChangeGate();
+    private final SharpnessMeter sharpnessMeter = new SharpnessMeter(SHARPNESS_WINDOW);
+    private final InferenceScheduler scheduler;
+    private YOLOv5Classifier.Options options;
+    private YOLOv5Classifier lastDetector;
+    // Frames since the last inference; starts high so the first frame is inferred
+    private int framesSinceDetection = Integer.MAX_VALUE / 2;
+    private int framesWaitingForSharpness = 0;
+    private int frames, inferences;
+    private volatile boolean stopped = false;
+    private volatile boolean detectionEnabled = true;
+    private volatile Runnable sharpFrameAction;
+
+    public LiveDetectionAnalyzer(Context context, InferenceScheduler scheduler, Listener listener) {
+        this.appContext = context.getApplicationContext();
+        this.scheduler = scheduler;
+        this.listener = listener;
+    }
+
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        try {
+            if (stopped) return;
+            long start = SystemClock.elapsedRealtimeNanos();
+            int rotation = image.getImageInfo().getRotationDegrees();
+            int width = rotation % 180 == 0 ? image.getWidth() : image.getHeight();
+            int height = rotation % 180 == 0 ? image.getHeight() : image.getWidth();
+            long timestampMs = image.getImageInfo().getTimestamp() / 1_000_000L;
+
+            boolean sharpest = measureSharpness(image);
+            Runnable action = sharpFrameAction;
+            // A freshly bound stream has no history yet, and its first frame would always win
+            if (action != null && sharpest && sharpnessMeter.hasFullWindow()) {
+                sharpFrameAction = null;
+                mainHandler.post(action);
+            }
+            if (!detectionEnabled) {
+                // Start from scratch when detection comes back on
+                if (!tracker.isEmpty()) {
+                    tracker.reset();
+                    sceneGate.reset();
+                    framesSinceDetection = Integer.MAX_VALUE / 2;
+                }
+                return;
+            }
+
+            InferenceScheduler.Level level = scheduler.evaluate(SystemClock.elapsedRealtime());
+            // Full inference at least every detectEveryNFrames; the frames in between are tracked only
+            boolean due = framesSinceDetection >= level.detectEveryNFrames - 1
+                    || tracker.minConfidence() < MIN_TRACK_CONFIDENCE;
+            boolean sharpEnough = sharpest || framesWaitingForSharpness >= MAX_SHARPNESS_WAIT;
+            if (due && !sharpEnough) framesWaitingForSharpness++;
+            boolean infer = due && sharpEnough && sceneChanged(image);
+            if (infer) {
+                List<YOLOv5Classifier.Result> detections = detect(image, rotation, level);
+                if (detections == null) return;
+                float iou = tracker.update(detections, timestampMs);
+                // How close the propagated boxes were to what the detector actually saw
+                if (iou >= 0) PerfMetrics.record("live.track_iou", iou);
+                sceneGate.markInferred();
+                framesSinceDetection = 0;
+                framesWaitingForSharpness = 0;
+                inferences++;
+            } else if (!due) {
+                tracker.predict(timestampMs);
+                framesSinceDetection++;
+            }
+            // A due frame that was too blurry, or that the gate found identical to the last
+            // inferred one, leaves the boxes exactly as they are; the next frame is checked again
+            frames++;
+            // The mean of this stat is the share of frames that skipped inference
+            PerfMetrics.record("live.inference_skipped", infer ? 0 : 1);
+            PerfMetrics.record("live.frame_ms", (SystemClock.elapsedRealtimeNanos() - start) / 1e6);
+
+            List<YOLOv5Classifier.Result> results = tracker.results();
+            mainHandler.post(() -> {
+                if (!stopped) listener.onDetections(results, width, height, infer);
+            });
+        } finally {
+            image.close();
+        }
+    }
+
+    // Turns detection on or off without rebinding the camera; sharpness keeps being measured
+    public void setDetectionEnabled(boolean enabled) {
+        detectionEnabled = enabled;
+    }
+
+    // Runs action once on the main thread at the next frame that is the sharpest of the
+    // recent ones. Replaces any action still waiting.
+    public void awaitSharpFrame(Runnable action) {
+        sharpFrameAction = action;
+    }
+
+    public void cancelSharpFrame() {
+        sharpFrameAction = null;
+    }
+
+    private boolean measureSharpness(ImageProxy image) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        ImageProxy.PlaneProxy luma = image.getPlanes()[0];
+        double score = sharpnessMeter.measure(luma.getBuffer(), luma.getRowStride(), luma.getPixelStride(),
+                image.getWidth(), image.getHeight());
+        PerfMetrics.record("live.sharpness_us", (SystemClock.elapsedRealtimeNanos() - start) / 1e3);
+        return sharpnessMeter.isSharpestRecent(score);
+    }
+
+    private boolean sceneChanged(ImageProxy image) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        ImageProxy.PlaneProxy luma = image.getPlanes()[0];
+        boolean changed = sceneGate.hasChanged(luma.getBuffer(), luma.getRowStride(), luma.getPixelStride(),
+                image.getWidth(), image.getHeight());
+        PerfMetrics.record("live.gate_us", (SystemClock.elapsedRealtimeNanos() - start) / 1e3);
+        // The mean of this stat is the share of due detections the gate skipped
+        PerfMetrics.record("live.scene_skipped", changed ? 0 : 1);
+        return changed;
+    }
+
+    // Stops delivering results; frames still queued are dropped
+    public void stop() {
+        if (stopped) return;
+        stopped = true;
+        if (frames > 0) {
+            PerfMetrics.event("live", "inferred " + inferences + " of " + frames + " frames");
+        }
+    }
+
+    private List<YOLOv5Classifier.Result> detect(ImageProxy image, int rotation, InferenceScheduler.Level level) {
+        YOLOv5Classifier detector;
+        try {
+            detector = DetectorProvider.getInstance(appContext).getLive(level.liveBudgetScale);
+        } catch (IOException e) {
+            Log.e(TAG, "Detector unavailable", e);
+            stopped = true;
+            return null;
+        }
+        if (options == null) {
+            options = new YOLOv5Classifier.Options(0.4f, MAX_RESULTS);
+            options.classMask = DetectionClassPreset.currentMask(appContext, detector.getLabels());
+        }
+        if (detector != lastDetector) {
+            lastDetector = detector;
+            int inputWidth = detector.getInputWidth();
+            int inputHeight = detector.getInputHeight();
+            mainHandler.post(() -> {
+                if (!stopped) listener.onModelInputChanged(inputWidth, inputHeight);
+            });
+        }
+        // Only rebuilds the interpreter when the scheduler's level asks for other threads.
+        // This is the live-only instance, so photos never wait for the rebuild.
+        detector.setNumThreads(level.numThreads);
+        Bitmap frame = upright(image.toBitmap(), rotation);
+        try {
+            long start = SystemClock.elapsedRealtimeNanos();
+            List<YOLOv5Classifier.Result> results = detector.detect(frame, options);
+            scheduler.recordInference((SystemClock.elapsedRealtimeNanos() - start) / 1e6);
+            return results;
+        } finally {
+            frame.recycle();
+        }
+    }
+
+    private static Bitmap upright(Bitmap bitmap, int rotation) {
+        if (rotation == 0) return bitmap;
+        Matrix matrix = new Matrix();
+        matrix.postRotate(rotation);
+        Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (rotated != bitmap) bitmap.recycle();
+        return rotated;
+    }
+}
@@ -33,7 +33,7 @@ public class LoginFragment extends Fragment {
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_login, container, false);
-        userDatabase = new UserDatabase(requireContext());
+        userDatabase = UserDatabase.getInstance(requireContext());
 
         edtEmail = view.findViewById(R.id.edtEmail);
         edtPassword = view.findViewById(R.id.edtPassword);
@@ -49,27 +49,32 @@ public class LoginFragment extends Fragment {
                 return;
             }
 
-            // Check if email is registered
-            if (!userDatabase.isEmailRegistered(email)) {
-                Toast.makeText(getContext(), "Non-existent account. Please register!", Toast.LENGTH_SHORT).show();
-                return;
-            }
+            btnLogin.setEnabled(false);
 
-            // Validate credentials
-            if (userDatabase.validateLogin(email, password)) {
-                // Save login session in database
-                userDatabase.saveLoginSession(email, true);
+            // One indexed lookup tells us whether the account exists and the password matches
+            userDatabase.authenticateAsync(email, password, result -> {
+                if (!isAdded()) return;
+                btnLogin.setEnabled(true);
+                if (result == UserDatabase.LoginResult.OK) {
+                    // Remember the session; it is written to the database in the background
+                    SessionManager.getInstance(requireContext()).login(email);
 
-                Toast.makeText(getContext(), "Login success!", Toast.LENGTH_SHORT).show();
-                NavController navController = Navigation.findNavController(requireActivity(), R.id.nav_host_fragment);
-                NavOptions navOptions = new NavOptions.Builder()
-                        .setPopUpTo(R.id.nav_welcome, true)
-                        .build();
-                navController.navigate(R.id.nav_home, null, navOptions);
-            } else {
-                // Email exists but password is wrong
-                Toast.makeText(getContext(), "Wrong password. Please try again!", Toast.LENGTH_SHORT).show();
-            }
+                    Toast.makeText(getContext(), "Login success!", Toast.LENGTH_SHORT).show();
+                    NavController navController = Navigation.findNavController(requireActivity(), R.id.nav_host_fragment);
+                    NavOptions navOptions = new NavOptions.Builder()
+                            .setPopUpTo(R.id.nav_welcome, true)
+                            .build();
+                    navController.navigate(R.id.nav_home, null, navOptions);
+                } else if (result == UserDatabase.LoginResult.BAD_PASSWORD) {
+                    // Email exists but password is wrong
+                    Toast.makeText(getContext(), "Wrong password. Please try again!", Toast.LENGTH_SHORT).show();
+                } else if (result == null || result == UserDatabase.LoginResult.ERROR) {
+                    // The database failed; the account may well exist, so don't send them to register
+                    Toast.makeText(getContext(), "Login failed. Please try again!", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(getContext(), "Non-existent account. Please register!", Toast.LENGTH_SHORT).show();
+                }
+            });
         });
 
         btnRegister.setOnClickListener(v -> {
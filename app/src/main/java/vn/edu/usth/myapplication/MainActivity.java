@@ -9,7 +9,9 @@
 package vn.edu.usth.myapplication;
 
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.view.View;
+import android.view.ViewTreeObserver;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.navigation.NavController;
@@ -22,8 +24,12 @@ import vn.edu.usth.myapplication.databinding.ActivityMainBinding;
 
 public class MainActivity extends AppCompatActivity {
 
+    // Longest we hold the first frame waiting for the session; after that the welcome
+    // screen shows and we still move on to home if the session turns out to be logged in
+    private static final long MAX_SESSION_WAIT_MS = 500;
+
     private ActivityMainBinding binding;
-    private UserDatabase userDatabase;
+    private SessionManager sessionManager;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -33,7 +39,8 @@ public class MainActivity extends AppCompatActivity {
         binding = ActivityMainBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        userDatabase = new UserDatabase(this);
+        sessionManager = SessionManager.getInstance(this);
+        holdFirstFrameUntilSessionLoaded();
 
         // Get the NavHostFragment
         NavHostFragment navHostFragment = (NavHostFragment) getSupportFragmentManager()
@@ -95,12 +102,38 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // Keeps the window from drawing the welcome screen only to replace it with home a
+    // moment later; the session is normally loaded well before the first frame anyway
+    private void holdFirstFrameUntilSessionLoaded() {
+        if (sessionManager.isLoaded()) return;
+        long start = SystemClock.elapsedRealtime();
+        View content = findViewById(android.R.id.content);
+        content.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                boolean ready = sessionManager.isLoaded()
+                        || SystemClock.elapsedRealtime() - start > MAX_SESSION_WAIT_MS;
+                if (ready) {
+                    content.getViewTreeObserver().removeOnPreDrawListener(this);
+                    PerfMetrics.record("startup.first_frame_wait_ms", SystemClock.elapsedRealtime() - start);
+                }
+                return ready;
+            }
+        });
+    }
+
     private void checkLoginStatus(NavController navController) {
-        // Check if user is logged in from database
-        if (userDatabase.isLoggedIn()) {
-            // User is logged in, navigate to home
-            navController.navigate(R.id.nav_home);
-        }
-        // If not logged in, the default destination (nav_welcome) will be shown
+        // Session is read from memory; if it's still loading this runs when it's ready
+        sessionManager.whenLoaded(() -> {
+            if (isFinishing() || !sessionManager.isLoggedIn()) {
+                // If not logged in, the default destination (nav_welcome) will be shown
+                return;
+            }
+            // User is logged in, navigate to home unless they already moved on
+            if (navController.getCurrentDestination() != null &&
+                    navController.getCurrentDestination().getId() == R.id.nav_welcome) {
+                navController.navigate(R.id.nav_home);
+            }
+        });
     }
 }
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: ModelVariant.java
+ * Last Modified: 18/10/2026 21:30
+ */
+
+package vn.edu.usth.myapplication;
+
+// Detector models the app knows how to use, cheapest first. Any of them may be missing from
+// the assets; DetectorProvider only picks the ones that are bundled. Input and output shapes
+// are read from the model itself, so only the asset name and a latency estimate live here.
+public enum ModelVariant {
+    NANO_320("yolov5n-320-fp16.tflite", 25),
+    SMALL_416("yolov5s-416-fp16.tflite", 70),
+    SMALL_640(DetectorProvider.DEFAULT_MODEL, 160);
+
+    public final String assetName;
+    // Typical inference time on a mid-range phone, used until real timings exist
+    final double nominalLatencyMs;
+
+    ModelVariant(String assetName, double nominalLatencyMs) {
+        this.assetName = assetName;
+        this.nominalLatencyMs = nominalLatencyMs;
+    }
+}
@@ -9,7 +9,6 @@
 package vn.edu.usth.myapplication;
 
 import android.app.Application;
-import android.content.SharedPreferences;
 
 import androidx.appcompat.app.AppCompatDelegate;
 
@@ -19,13 +18,37 @@ public class MyApplication extends Application {
     public void onCreate() {
         super.onCreate();
 
-        // Apply theme as soon as app starts - BEFORE any activities are created
-        applyTheme();
+        // Startup work as a dependency graph: only the theme has to be in place before the
+        // first activity; everything else runs in parallel off the main thread
+        new AppStartup()
+                // Starts reading the settings file on its own thread
+                .onMain("settings", () -> SettingsStore.getInstance(this))
+                // Apply theme as soon as app starts - BEFORE any activities are created
+                .onMain("theme", this::applyTheme, "settings")
+                // Read the stored login in the background so the launch path never waits on SQLite
+                .onMainAsync("session", done -> {
+                    SessionManager session = SessionManager.getInstance(this);
+                    session.load();
+                    session.whenLoaded(done);
+                })
+                .inBackground("detector", () -> DetectorProvider.getInstance(this).warmUp())
+                .inBackground("http", AzureTranslatorService::warmUp)
+                // Measures the password hashing cost once per install, before anyone registers
+                .inBackgroundAsync("auth",
+                        done -> UserDatabase.getInstance(this).ensureWorkFactorAsync(factor -> done.run()))
+                // Binds the shared TTS engine and probes its languages on the speech thread
+                .inBackgroundAsync("tts", done -> SpeechService.getInstance(this).warmUp(done))
+                // Finish any gallery saves a previous process didn't get to
+                .inBackgroundAsync("save_queue", done -> PhotoSaveQueue.getInstance(this).resumePending(done))
+                // Reclaim temp captures leaked by earlier sessions. Starts once every journaled
+                // save is queued again with its source pinned, so the sweep can't race the resume
+                .inBackgroundAsync("capture_cache",
+                        done -> CaptureCacheManager.getInstance(this).sweepOrphansAsync(done), "save_queue")
+                .start();
     }
 
     private void applyTheme() {
-        SharedPreferences prefs = getSharedPreferences("PhotoMagicPrefs", MODE_PRIVATE);
-        boolean isDarkMode = prefs.getBoolean("dark_mode", false);
+        boolean isDarkMode = SettingsStore.getInstance(this).get(SettingsStore.DARK_MODE);
 
         android.util.Log.d("MyApplication", "Applying theme - Dark mode: " + isDarkMode);
 
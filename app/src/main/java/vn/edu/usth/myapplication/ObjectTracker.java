@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: ObjectTracker.java
+ * Last Modified: 18/10/2026 16:20
+ */
+
+package vn.edu.usth.myapplication;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Multi-object tracker over detector output, so live detection can skip inference on most
+// frames. Each track runs an alpha-beta filter (a fixed-gain Kalman filter) on its box
+// centre and size: predict() moves boxes along their velocity between detections and
+// update() corrects them with new detections matched by IoU. Track ids and labels stay
+// stable across frames; the label is a decaying vote, so one odd frame can't flip it.
+// Not thread-safe; the live analyzer uses it from one thread.
+public class ObjectTracker {
+
+    // Least overlap for a detection to continue an existing track
+    private static final float MATCH_IOU = 0.3f;
+    // Filter gains: how far a measurement pulls the position and the velocity
+    private static final float POSITION_GAIN = 0.6f;
+    private static final float VELOCITY_GAIN = 0.3f;
+    // Per predicted frame; an unconfirmed box slowly loses credibility
+    private static final float CONFIDENCE_DECAY = 0.93f;
+    // Older label votes fade by this much each time a new one arrives
+    private static final float LABEL_VOTE_DECAY = 0.8f;
+    // Detection passes a track may go unmatched before it is dropped
+    private static final int MAX_MISSES = 2;
+
+    private final List<Track> tracks = new ArrayList<>();
+    private int nextId = 1;
+
+    public static final class Track {
+        public final int id;
+        private String label;
+        private float confidence;
+        private float cx, cy, w, h;
+        // Pixels per millisecond
+        private float vx, vy;
+        private long predictedAt, measuredAt;
+        private int misses;
+        private final Map<String, Float> labelVotes = new HashMap<>();
+
+        Track(int id, YOLOv5Classifier.Result detection, long timestampMs) {
+            this.id = id;
+            cx = (detection.left + detection.right) / 2;
+            cy = (detection.top + detection.bottom) / 2;
+            w = detection.right - detection.left;
+            h = detection.bottom - detection.top;
+            confidence = detection.conf;
+            predictedAt = measuredAt = timestampMs;
+            vote(detection);
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public float getConfidence() {
+            return confidence;
+        }
+
+        public YOLOv5Classifier.Result toResult() {
+            return new YOLOv5Classifier.Result(label, confidence, cx - w / 2, cy - h / 2, cx + w / 2, cy + h / 2);
+        }
+
+        void predict(long timestampMs) {
+            long dt = timestampMs - predictedAt;
+            if (dt <= 0) return;
+            cx += vx * dt;
+            cy += vy * dt;
+            predictedAt = timestampMs;
+            confidence *= CONFIDENCE_DECAY;
+        }
+
+        void correct(YOLOv5Classifier.Result detection, long timestampMs) {
+            float mx = (detection.left + detection.right) / 2;
+            float my = (detection.top + detection.bottom) / 2;
+            float rx = mx - cx;
+            float ry = my - cy;
+            cx += POSITION_GAIN * rx;
+            cy += POSITION_GAIN * ry;
+            long dt = timestampMs - measuredAt;
+            if (dt > 0) {
+                vx += VELOCITY_GAIN * rx / dt;
+                vy += VELOCITY_GAIN * ry / dt;
+            }
+            w += POSITION_GAIN * ((detection.right - detection.left) - w);
+            h += POSITION_GAIN * ((detection.bottom - detection.top) - h);
+            confidence = detection.conf;
+            measuredAt = predictedAt = timestampMs;
+            misses = 0;
+            vote(detection);
+        }
+
+        private void vote(YOLOv5Classifier.Result detection) {
+            String best = null;
+            float bestScore = 0;
+            for (Map.Entry<String, Float> e : labelVotes.entrySet()) {
+                e.setValue(e.getValue() * LABEL_VOTE_DECAY);
+            }
+            Float previous = labelVotes.get(detection.label);
+            labelVotes.put(detection.label, (previous != null ? previous : 0f) + detection.conf);
+            for (Map.Entry<String, Float> e : labelVotes.entrySet()) {
+                if (e.getValue() > bestScore) {
+                    bestScore = e.getValue();
+                    best = e.getKey();
+                }
+            }
+            label = best;
+        }
+    }
+
+    // Moves every track to timestampMs without new measurements
+    public void predict(long timestampMs) {
+        for (Track t : tracks) t.predict(timestampMs);
+    }
+
+    /**
+     * Matches detections made at timestampMs to the predicted tracks and corrects them;
+     * unmatched detections start new tracks and tracks unmatched too often are dropped.
+     * Returns the mean IoU between matched predictions and their detections, i.e. how
+     * accurate the boxes shown between detections were, or -1 if nothing matched.
+     */
+    public float update(List<YOLOv5Classifier.Result> detections, long timestampMs) {
+        predict(timestampMs);
+
+        // Greedy assignment, best overlap first
+        List<float[]> pairs = new ArrayList<>();
+        for (int t = 0; t < tracks.size(); t++) {
+            YOLOv5Classifier.Result predicted = tracks.get(t).toResult();
+            for (int d = 0; d < detections.size(); d++) {
+                float iou = YOLOv5Classifier.iou(predicted, detections.get(d));
+                if (iou >= MATCH_IOU) pairs.add(new float[]{iou, t, d});
+            }
+        }
+        pairs.sort((a, b) -> Float.compare(b[0], a[0]));
+
+        boolean[] trackMatched = new boolean[tracks.size()];
+        boolean[] detectionMatched = new boolean[detections.size()];
+        float iouSum = 0;
+        int matches = 0;
+        for (float[] pair : pairs) {
+            int t = (int) pair[1];
+            int d = (int) pair[2];
+            if (trackMatched[t] || detectionMatched[d]) continue;
+            trackMatched[t] = detectionMatched[d] = true;
+            tracks.get(t).correct(detections.get(d), timestampMs);
+            iouSum += pair[0];
+            matches++;
+        }
+
+        int index = 0;
+        for (Iterator<Track> it = tracks.iterator(); it.hasNext(); index++) {
+            Track track = it.next();
+            if (!trackMatched[index] && ++track.misses > MAX_MISSES) it.remove();
+        }
+        for (int d = 0; d < detections.size(); d++) {
+            if (!detectionMatched[d]) tracks.add(new Track(nextId++, detections.get(d), timestampMs));
+        }
+        return matches > 0 ? iouSum / matches : -1f;
+    }
+
+    public boolean isEmpty() {
+        return tracks.isEmpty();
+    }
+
+    // Lowest confidence among live tracks, or 1 if there are none
+    public float minConfidence() {
+        float min = 1f;
+        for (Track t : tracks) min = Math.min(min, t.confidence);
+        return min;
+    }
+
+    public List<Track> getTracks() {
+        return new ArrayList<>(tracks);
+    }
+
+    // Current boxes of tracks that were seen in the last detection pass
+    public List<YOLOv5Classifier.Result> results() {
+        List<YOLOv5Classifier.Result> results = new ArrayList<>();
+        for (Track t : tracks) {
+            if (t.misses == 0) results.add(t.toResult());
+        }
+        return results;
+    }
+
+    public void reset() {
+        tracks.clear();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: PasswordHasher.java
+ * Last Modified: 18/10/2026 11:45
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.os.SystemClock;
+import android.util.Base64;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// Salted PBKDF2 password hashes. Each hash is stored as one self-describing string,
+// "pbkdf2_sha256$<iterations>$<salt>$<hash>", so every user keeps the algorithm and work
+// factor it was created with and old hashes still verify after the work factor is raised.
+// All methods are slow on purpose; call them off the main thread.
+public final class PasswordHasher {
+
+    public static final String SHA256 = "pbkdf2_sha256";
+    // PBKDF2WithHmacSHA256 only exists from API 26; older devices fall back to SHA-1
+    public static final String SHA1 = "pbkdf2_sha1";
+
+    public static final int MIN_ITERATIONS = 10_000;
+    public static final int MAX_ITERATIONS = 2_000_000;
+
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int CALIBRATION_ITERATIONS = 20_000;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private PasswordHasher() {
+    }
+
+    // Strongest algorithm this device supports
+    public static String preferredAlgorithm() {
+        try {
+            SecretKeyFactory.getInstance(jcaName(SHA256));
+            return SHA256;
+        } catch (NoSuchAlgorithmException e) {
+            return SHA1;
+        }
+    }
+
+    public static String hash(String password, int iterations) throws GeneralSecurityException {
+        String algorithm = preferredAlgorithm();
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = derive(algorithm, password, salt, iterations);
+        return algorithm + "$" + iterations + "$" + encode(salt) + "$" + encode(hash);
+    }
+
+    // False for anything that isn't one of our hashes, e.g. a legacy plaintext password
+    public static boolean isHash(String stored) {
+        return parse(stored) != null;
+    }
+
+    public static boolean verify(String password, String stored) throws GeneralSecurityException {
+        Parsed parsed = parse(stored);
+        if (parsed == null) return false;
+        byte[] actual = derive(parsed.algorithm, password, parsed.salt, parsed.iterations);
+        // Constant-time comparison
+        return MessageDigest.isEqual(actual, parsed.hash);
+    }
+
+    // True if the stored hash is weaker than what we'd create today
+    public static boolean needsRehash(String stored, int iterations) {
+        Parsed parsed = parse(stored);
+        return parsed == null
+                || parsed.iterations < iterations
+                || !parsed.algorithm.equals(preferredAlgorithm());
+    }
+
+    // Times a fixed number of iterations on this device and scales it to the number
+    // that takes roughly targetMs per verification
+    public static int calibrate(long targetMs) throws GeneralSecurityException {
+        String algorithm = preferredAlgorithm();
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        // Warm up the provider so class loading isn't part of the measurement
+        derive(algorithm, "calibration", salt, 1_000);
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        derive(algorithm, "calibration", salt, CALIBRATION_ITERATIONS);
+        long elapsedNs = Math.max(1, SystemClock.elapsedRealtimeNanos() - start);
+
+        long iterations = CALIBRATION_ITERATIONS * (targetMs * 1_000_000L) / elapsedNs;
+        return (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, iterations));
+    }
+
+    private static byte[] derive(String algorithm, String password, byte[] salt, int iterations)
+            throws GeneralSecurityException {
+        char[] chars = password.toCharArray();
+        PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(jcaName(algorithm)).generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    private static String jcaName(String algorithm) {
+        return SHA256.equals(algorithm) ? "PBKDF2WithHmacSHA256" : "PBKDF2WithHmacSHA1";
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.encodeToString(bytes, Base64.NO_WRAP);
+    }
+
+    private static Parsed parse(String stored) {
+        if (stored == null) return null;
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4 || !(SHA256.equals(parts[0]) || SHA1.equals(parts[0]))) {
+            return null;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.decode(parts[2], Base64.NO_WRAP);
+            byte[] hash = Base64.decode(parts[3], Base64.NO_WRAP);
+            if (iterations <= 0 || salt.length == 0 || hash.length == 0) return null;
+            return new Parsed(parts[0], iterations, salt, hash);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static final class Parsed {
+        final String algorithm;
+        final int iterations;
+        final byte[] salt;
+        final byte[] hash;
+
+        Parsed(String algorithm, int iterations, byte[] salt, byte[] hash) {
+            this.algorithm = algorithm;
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: PerceptualHash.java
+ * Last Modified: 18/10/2026 10:40
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.File;
+
+// 64-bit difference hash (dHash): the image is reduced to a 9x8 grey grid and each bit
+// records whether a cell is brighter than its right neighbour. Near-identical shots differ
+// in only a few bits, so the Hamming distance works as a similarity measure.
+public final class PerceptualHash {
+
+    // Bits that may differ for two photos to count as near-duplicates
+    public static final int DUPLICATE_DISTANCE = 6;
+
+    private static final int GRID_W = 9;
+    private static final int GRID_H = 8;
+    // Intermediate size, large enough that the final box filter averages out noise
+    private static final int SAMPLE_W = GRID_W * 16;
+    private static final int SAMPLE_H = GRID_H * 16;
+
+    private PerceptualHash() {
+    }
+
+    // Hashes an image file from a subsampled decode; returns null if it can't be decoded
+    public static Long ofFile(File file) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        while (bounds.outWidth / (options.inSampleSize * 2) >= SAMPLE_W
+                && bounds.outHeight / (options.inSampleSize * 2) >= SAMPLE_H) {
+            options.inSampleSize *= 2;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        if (bitmap == null) return null;
+        try {
+            return of(bitmap);
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    public static long of(Bitmap bitmap) {
+        Bitmap sample = Bitmap.createScaledBitmap(bitmap, SAMPLE_W, SAMPLE_H, true);
+        int[] pixels = new int[SAMPLE_W * SAMPLE_H];
+        sample.getPixels(pixels, 0, SAMPLE_W, 0, 0, SAMPLE_W, SAMPLE_H);
+        if (sample != bitmap) sample.recycle();
+
+        // Box-average into the 9x8 luma grid
+        int cellW = SAMPLE_W / GRID_W;
+        int cellH = SAMPLE_H / GRID_H;
+        int[] grid = new int[GRID_W * GRID_H];
+        for (int y = 0; y < SAMPLE_H; y++) {
+            int gy = y / cellH;
+            for (int x = 0; x < SAMPLE_W; x++) {
+                int p = pixels[y * SAMPLE_W + x];
+                // Integer BT.601 luma
+                int luma = (77 * ((p >> 16) & 0xFF) + 150 * ((p >> 8) & 0xFF) + 29 * (p & 0xFF)) >> 8;
+                grid[gy * GRID_W + x / cellW] += luma;
+            }
+        }
+
+        long hash = 0;
+        for (int y = 0; y < GRID_H; y++) {
+            for (int x = 0; x < GRID_W - 1; x++) {
+                hash <<= 1;
+                if (grid[y * GRID_W + x] > grid[y * GRID_W + x + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return PerceptualHashIndex.distance(a, b);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: PerceptualHashIndex.java
+ * Last Modified: 18/10/2026 10:40
+ */
+
+package vn.edu.usth.myapplication;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// BK-tree over 64-bit perceptual hashes. A lookup only descends into children whose edge
+// distance is within maxDistance of the query's distance to the node (triangle inequality),
+// so near-duplicate queries touch a small part of the tree even with thousands of photos.
+// Not thread-safe; PhotoDatabase guards it with its own lock.
+final class PerceptualHashIndex {
+
+    private static final int MAX_DISTANCE = 64;
+
+    private Node root;
+    private final Map<String, Node> nodesById = new HashMap<>();
+    private int emptyNodes = 0;
+    private int nodeCount = 0;
+
+    static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    void add(String id, long hash) {
+        remove(id);
+        if (root == null) {
+            root = new Node(hash);
+            nodeCount++;
+            attach(root, id);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int d = distance(node.hash, hash);
+            if (d == 0) {
+                attach(node, id);
+                return;
+            }
+            Node child = node.children[d];
+            if (child == null) {
+                child = new Node(hash);
+                node.children[d] = child;
+                nodeCount++;
+                attach(child, id);
+                return;
+            }
+            node = child;
+        }
+    }
+
+    void remove(String id) {
+        Node node = nodesById.remove(id);
+        if (node == null) return;
+        node.ids.remove(id);
+        if (node.ids.isEmpty()) {
+            emptyNodes++;
+            // Empty nodes still route lookups; rebuild once they dominate the tree
+            if (emptyNodes > nodeCount / 2) {
+                rebuild();
+            }
+        }
+    }
+
+    void clear() {
+        root = null;
+        nodesById.clear();
+        emptyNodes = 0;
+        nodeCount = 0;
+    }
+
+    int size() {
+        return nodesById.size();
+    }
+
+    // All ids whose hash is within maxDistance bits of hash, closest first
+    List<Match> findWithin(long hash, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null) return matches;
+
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int d = distance(node.hash, hash);
+            if (d <= maxDistance) {
+                for (String id : node.ids) {
+                    matches.add(new Match(id, d));
+                }
+            }
+            int lo = Math.max(1, d - maxDistance);
+            int hi = Math.min(MAX_DISTANCE, d + maxDistance);
+            for (int k = lo; k <= hi; k++) {
+                Node child = node.children[k];
+                if (child != null) stack.push(child);
+            }
+        }
+        matches.sort((a, b) -> Integer.compare(a.distance, b.distance));
+        return matches;
+    }
+
+    private void attach(Node node, String id) {
+        if (node.ids.isEmpty() && node.used) {
+            emptyNodes--;
+        }
+        node.used = true;
+        node.ids.add(id);
+        nodesById.put(id, node);
+    }
+
+    private void rebuild() {
+        Map<String, Long> live = new HashMap<>();
+        for (Map.Entry<String, Node> e : nodesById.entrySet()) {
+            live.put(e.getKey(), e.getValue().hash);
+        }
+        clear();
+        for (Map.Entry<String, Long> e : live.entrySet()) {
+            add(e.getKey(), e.getValue());
+        }
+    }
+
+    static final class Match {
+        final String id;
+        final int distance;
+
+        Match(String id, int distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+    }
+
+    private static final class Node {
+        final long hash;
+        final List<String> ids = new ArrayList<>(1);
+        final Node[] children = new Node[MAX_DISTANCE + 1];
+        boolean used;
+
+        Node(long hash) {
+            this.hash = hash;
+        }
+    }
+}
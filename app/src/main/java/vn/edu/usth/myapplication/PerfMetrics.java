@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: PerfMetrics.java
+ * Last Modified: 18/10/2026 9:12
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Process-wide counters for timings and sizes, plus a short log of notable events.
+// Everything is also written to Logcat under the "PerfMetrics" tag.
+public final class PerfMetrics {
+
+    private static final String TAG = "PerfMetrics";
+    private static final int MAX_EVENTS = 100;
+
+    private static final Map<String, Stat> stats = new ConcurrentHashMap<>();
+    private static final Deque<String> events = new ArrayDeque<>();
+
+    private PerfMetrics() {
+    }
+
+    // Adds one sample to the named stat (e.g. "save.encode_ms")
+    public static void record(String name, double value) {
+        Stat stat = stats.get(name);
+        if (stat == null) {
+            stats.putIfAbsent(name, new Stat());
+            stat = stats.get(name);
+        }
+        stat.add(value);
+    }
+
+    // Records a one-off event such as a policy decision
+    public static void event(String name, String detail) {
+        String line = name + ": " + detail;
+        Log.i(TAG, line);
+        synchronized (events) {
+            if (events.size() == MAX_EVENTS) {
+                events.removeFirst();
+            }
+            events.addLast(System.currentTimeMillis() + " " + line);
+        }
+    }
+
+    public static Stat get(String name) {
+        return stats.get(name);
+    }
+
+    public static List<String> recentEvents() {
+        synchronized (events) {
+            return new ArrayList<>(events);
+        }
+    }
+
+    public static String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Stat> e : new TreeMap<>(stats).entrySet()) {
+            sb.append(e.getKey()).append(' ').append(e.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static void logSummary() {
+        Log.i(TAG, "\n" + summary());
+    }
+
+    public static void reset() {
+        stats.clear();
+        synchronized (events) {
+            events.clear();
+        }
+    }
+
+    public static final class Stat {
+        private long count;
+        private double sum;
+        private double min = Double.MAX_VALUE;
+        private double max = -Double.MAX_VALUE;
+        private double last;
+
+        synchronized void add(double value) {
+            count++;
+            sum += value;
+            last = value;
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized double getMean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        public synchronized double getSum() {
+            return sum;
+        }
+
+        public synchronized double getLast() {
+            return last;
+        }
+
+        @Override
+        public synchronized String toString() {
+            if (count == 0) return "n=0";
+            return String.format(Locale.US, "n=%d mean=%.2f min=%.2f max=%.2f last=%.2f",
+                    count, sum / count, min, max, last);
+        }
+    }
+}
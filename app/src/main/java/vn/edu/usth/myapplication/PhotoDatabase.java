@@ -10,78 +10,273 @@ package vn.edu.usth.myapplication;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
 
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class PhotoDatabase {
     private static final String PREF_NAME = "PhotoMagicDB";
-    private static final String KEY_ENTRIES = "photo_entries"; // each entry: uri|timestamp
+    private static final String KEY_ENTRIES = "photo_entries"; // each entry: uri|timestamp[|dhash hex]
     private static final int MAX_HISTORY = 20; // Maximum number of photos to keep
 
+    private static volatile PhotoDatabase instance;
+
     private final SharedPreferences sharedPreferences;
+    private final Object lock = new Object();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<ObserverRegistration> observers = new CopyOnWriteArrayList<>();
+
+    // In-memory copy of the stored entries (newest first), loaded on first access
+    private List<PhotoEntry> entries;
+    // Perceptual hashes of the entries above, for near-duplicate lookups
+    private final PerceptualHashIndex hashIndex = new PerceptualHashIndex();
 
-    public PhotoDatabase(Context context) {
+    private PhotoDatabase(Context context) {
         sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
     }
 
-    public void savePhoto(String uriString, long timestamp) {
-        Set<String> existing = sharedPreferences.getStringSet(KEY_ENTRIES, new HashSet<>());
-        List<PhotoEntry> allPhotos = new ArrayList<>();
-
-        // Convert existing entries to PhotoEntry objects
-        for (String s : existing) {
-            String[] parts = s.split("\\|", 2);
-            if (parts.length == 2) {
-                try {
-                    long ts = Long.parseLong(parts[1]);
-                    allPhotos.add(new PhotoEntry(parts[0], ts));
-                } catch (NumberFormatException ignored) {
+    // One store per process so every screen sees the same entries and change events
+    public static PhotoDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (PhotoDatabase.class) {
+                if (instance == null) {
+                    instance = new PhotoDatabase(context.getApplicationContext());
                 }
             }
         }
+        return instance;
+    }
 
-        // Add new photo
-        allPhotos.add(new PhotoEntry(uriString, timestamp));
+    public void savePhoto(String uriString, long timestamp) {
+        savePhoto(uriString, timestamp, null);
+    }
 
-        // Sort by timestamp (newest first)
-        allPhotos.sort((a, b) -> Long.compare(b.getDateTaken(), a.getDateTaken()));
+    public void savePhoto(String uriString, long timestamp, Long perceptualHash) {
+        List<Change> changes = new ArrayList<>();
+        List<ObserverRegistration> targets;
 
-        // Keep only the latest MAX_HISTORY photos
-        if (allPhotos.size() > MAX_HISTORY) {
-            allPhotos = allPhotos.subList(0, MAX_HISTORY);
-        }
+        synchronized (lock) {
+            List<PhotoEntry> allPhotos = ensureLoaded();
+            PhotoEntry newEntry = new PhotoEntry(uriString, timestamp, perceptualHash);
 
-        // Convert back to strings and save
-        Set<String> updated = new HashSet<>();
-        for (PhotoEntry entry : allPhotos) {
-            updated.add(entry.getUri() + "|" + entry.getDateTaken());
+            // Saving the same uri again only refreshes its timestamp
+            int existing = indexOf(allPhotos, newEntry.getId());
+            if (existing >= 0) {
+                allPhotos.remove(existing);
+                changes.add(new Change(Change.Type.UPDATED, newEntry));
+            } else {
+                changes.add(new Change(Change.Type.INSERTED, newEntry));
+            }
+            allPhotos.add(newEntry);
+            indexEntry(newEntry);
+
+            // Sort by timestamp (newest first)
+            allPhotos.sort((a, b) -> Long.compare(b.getDateTaken(), a.getDateTaken()));
+
+            // Keep only the latest MAX_HISTORY photos
+            while (allPhotos.size() > MAX_HISTORY) {
+                PhotoEntry dropped = allPhotos.remove(allPhotos.size() - 1);
+                hashIndex.remove(dropped.getId());
+                changes.add(new Change(Change.Type.DELETED, dropped));
+            }
+
+            persist(allPhotos);
+            targets = new ArrayList<>(observers);
         }
 
-        sharedPreferences.edit().putStringSet(KEY_ENTRIES, updated).apply();
+        dispatch(targets, changes);
     }
 
     public List<PhotoEntry> getAll() {
-        Set<String> stored = sharedPreferences.getStringSet(KEY_ENTRIES, new HashSet<>());
+        synchronized (lock) {
+            return new ArrayList<>(ensureLoaded());
+        }
+    }
+
+    // Entries whose perceptual hash is within maxDistance bits of hash, most similar first
+    public List<PhotoEntry> findSimilar(long hash, int maxDistance) {
         List<PhotoEntry> result = new ArrayList<>();
-        for (String s : stored) {
-            String[] parts = s.split("\\|", 2);
-            if (parts.length == 2) {
-                try {
-                    long ts = Long.parseLong(parts[1]);
-                    result.add(new PhotoEntry(parts[0], ts));
-                } catch (NumberFormatException ignored) {
+        synchronized (lock) {
+            List<PhotoEntry> allPhotos = ensureLoaded();
+            for (PerceptualHashIndex.Match match : hashIndex.findWithin(hash, maxDistance)) {
+                int index = indexOf(allPhotos, match.id);
+                if (index >= 0) {
+                    result.add(allPhotos.get(index));
                 }
             }
         }
-        // newest first
-        result.sort((a, b) -> Long.compare(b.getDateTaken(), a.getDateTaken()));
         return result;
     }
 
     public void clear() {
-        sharedPreferences.edit().remove(KEY_ENTRIES).apply();
+        List<Change> changes = new ArrayList<>();
+        List<ObserverRegistration> targets;
+
+        synchronized (lock) {
+            List<PhotoEntry> allPhotos = ensureLoaded();
+            for (PhotoEntry entry : allPhotos) {
+                changes.add(new Change(Change.Type.DELETED, entry));
+            }
+            allPhotos.clear();
+            hashIndex.clear();
+            sharedPreferences.edit().remove(KEY_ENTRIES).apply();
+            targets = new ArrayList<>(observers);
+        }
+
+        dispatch(targets, changes);
+    }
+
+    /**
+     * Registers an observer for insert/delete/update events. Events are delivered on the main
+     * thread while the owner is at least STARTED; events raised while it is stopped are queued and
+     * delivered in order when it starts again. The observer is removed when the owner is destroyed.
+     * Must be called on the main thread.
+     */
+    public void observe(@NonNull LifecycleOwner owner, @NonNull ChangeObserver observer) {
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+        ObserverRegistration registration = new ObserverRegistration(owner, observer);
+        synchronized (lock) {
+            observers.add(registration);
+        }
+        owner.getLifecycle().addObserver(registration);
+    }
+
+    private List<PhotoEntry> ensureLoaded() {
+        if (entries == null) {
+            Set<String> stored = sharedPreferences.getStringSet(KEY_ENTRIES, new HashSet<>());
+            List<PhotoEntry> result = new ArrayList<>();
+            for (String s : stored) {
+                String[] parts = s.split("\\|");
+                if (parts.length >= 2) {
+                    try {
+                        long ts = Long.parseLong(parts[1]);
+                        Long hash = parts.length >= 3 ? new BigInteger(parts[2], 16).longValue() : null;
+                        PhotoEntry entry = new PhotoEntry(parts[0], ts, hash);
+                        result.add(entry);
+                        indexEntry(entry);
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+            // newest first
+            result.sort((a, b) -> Long.compare(b.getDateTaken(), a.getDateTaken()));
+            entries = result;
+        }
+        return entries;
+    }
+
+    private void indexEntry(PhotoEntry entry) {
+        if (entry.getPerceptualHash() != null) {
+            hashIndex.add(entry.getId(), entry.getPerceptualHash());
+        } else {
+            hashIndex.remove(entry.getId());
+        }
+    }
+
+    private void persist(List<PhotoEntry> allPhotos) {
+        Set<String> updated = new HashSet<>();
+        for (PhotoEntry entry : allPhotos) {
+            String line = entry.getUriString() + "|" + entry.getDateTaken();
+            if (entry.getPerceptualHash() != null) {
+                line += "|" + Long.toHexString(entry.getPerceptualHash());
+            }
+            updated.add(line);
+        }
+        sharedPreferences.edit().putStringSet(KEY_ENTRIES, updated).apply();
+    }
+
+    private static int indexOf(List<PhotoEntry> list, String id) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).getId().equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void dispatch(List<ObserverRegistration> targets, List<Change> changes) {
+        if (changes.isEmpty() || targets.isEmpty()) {
+            return;
+        }
+        mainHandler.post(() -> {
+            for (ObserverRegistration registration : targets) {
+                registration.deliver(changes);
+            }
+        });
+    }
+
+    public interface ChangeObserver {
+        void onPhotosChanged(@NonNull List<Change> changes);
+    }
+
+    public static final class Change {
+        public enum Type {INSERTED, DELETED, UPDATED}
+
+        public final Type type;
+        public final PhotoEntry entry;
+
+        Change(Type type, PhotoEntry entry) {
+            this.type = type;
+            this.entry = entry;
+        }
+
+        public String getId() {
+            return entry.getId();
+        }
+    }
+
+    private final class ObserverRegistration implements LifecycleEventObserver {
+        private final LifecycleOwner owner;
+        private final ChangeObserver observer;
+        private final List<Change> pending = new ArrayList<>();
+        private boolean removed = false;
+
+        ObserverRegistration(LifecycleOwner owner, ChangeObserver observer) {
+            this.owner = owner;
+            this.observer = observer;
+        }
+
+        // Main thread only
+        void deliver(List<Change> changes) {
+            if (removed) return;
+            if (isActive()) {
+                observer.onPhotosChanged(changes);
+            } else {
+                pending.addAll(changes);
+            }
+        }
+
+        private boolean isActive() {
+            return owner.getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED);
+        }
+
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                removed = true;
+                pending.clear();
+                observers.remove(this);
+                source.getLifecycle().removeObserver(this);
+                return;
+            }
+            if (isActive() && !pending.isEmpty()) {
+                List<Change> queued = new ArrayList<>(pending);
+                pending.clear();
+                observer.onPhotosChanged(queued);
+            }
+        }
     }
 }
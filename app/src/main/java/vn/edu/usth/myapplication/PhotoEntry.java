@@ -13,10 +13,21 @@ import android.net.Uri;
 public class PhotoEntry {
     private final String uriString;
     private final long dateTaken;
+    private final Long perceptualHash; // null for entries saved before hashing existed
 
     public PhotoEntry(String uriString, long dateTaken) {
+        this(uriString, dateTaken, null);
+    }
+
+    public PhotoEntry(String uriString, long dateTaken, Long perceptualHash) {
         this.uriString = uriString;
         this.dateTaken = dateTaken;
+        this.perceptualHash = perceptualHash;
+    }
+
+    // The content uri is unique per saved photo, so it doubles as the entry id
+    public String getId() {
+        return uriString;
     }
 
     public Uri getUri() {
@@ -30,4 +41,8 @@ public class PhotoEntry {
     public long getDateTaken() {
         return dateTaken;
     }
+
+    public Long getPerceptualHash() {
+        return perceptualHash;
+    }
 }
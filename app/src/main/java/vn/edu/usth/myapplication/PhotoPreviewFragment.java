@@ -9,20 +9,23 @@
 package vn.edu.usth.myapplication;
 
 import android.Manifest;
-import android.content.ContentValues;
+import android.content.Context;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.graphics.ImageDecoder;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
+import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -35,19 +38,18 @@ import androidx.fragment.app.Fragment;
 import androidx.navigation.NavController;
 import androidx.navigation.Navigation;
 
+import com.google.android.material.button.MaterialButton;
 import com.google.android.material.floatingactionbutton.ExtendedFloatingActionButton;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class PhotoPreviewFragment extends Fragment {
 
@@ -55,8 +57,16 @@ public class PhotoPreviewFragment extends Fragment {
     private static final String ARG_PHOTO_URI = "photo_uri";
     private static final String ARG_TIMESTAMP = "timestamp";
     private static final String ARG_IS_TEMP = "is_temp";
+    private static final String ARG_HANDOFF_ID = "handoff_id";
+    private static final String ARG_SHUTTER_AT = "shutter_at";
+    private static final String ARG_AUTO_TRANSLATE = "auto_translate";
+    private static final String ARG_SEEN_AT = "seen_at";
+    // Boxes shown at once, and the low end of the threshold slider
+    private static final int MAX_RESULTS = 5;
+    private static final int MIN_THRESHOLD_PERCENT = 10;
 
     private ImageView imgPreview;
+    private DetectionOverlayView detectionOverlay;
     private TextView txtDetectedObjects;
     private FloatingActionButton btnSave;
     private ExtendedFloatingActionButton btnProceedTranslation;
@@ -65,6 +75,44 @@ public class PhotoPreviewFragment extends Fragment {
     private boolean isTemp = false;
     private Bitmap currentBitmap;
     private final List<String> detectedObjectsList = new ArrayList<>();
+    private final List<YOLOv5Classifier.Result> detectionResults = new ArrayList<>();
+    private String pendingSaveId;
+    private File pinnedCapture;
+    // In-memory capture from the camera; photoUri stays null until it is written out
+    private CaptureHandoff.Capture handoffCapture;
+    private String handoffId;
+    // Shutter press time for the shutter-to-result metric, 0 once reported
+    private long shutterAt;
+    // Auto-capture: go straight on to translation after detection, and when the object
+    // first came into view (for the seen-to-translation metric)
+    private boolean autoTranslate;
+    private long seenAt;
+
+    // Live postprocess tuning of the last detection
+    private final ExecutorService tuningExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private View detectionTuning;
+    private MaterialButton btnClassFilter;
+    private float threshold = 0.4f;
+    private boolean[] classMask;
+    // Mask from the saved detection preset, applied under classMask; null means all classes
+    private boolean[] presetMask;
+    private int detectionOutputId;
+    // Small-object candidates from the tiled pass over the same photo, null if none ran;
+    // merged into every re-derivation of the results
+    private List<YOLOv5Classifier.Result> tileCandidates;
+    private volatile int tuningRequest;
+
+    private final PhotoSaveQueue.Listener saveListener = (job, savedUri, error) -> {
+        if (!job.getId().equals(pendingSaveId)) return;
+        pendingSaveId = null;
+        if (savedUri != null) {
+            photoUri = savedUri.toString();
+        } else if (btnSave != null) {
+            // Let the user retry if the capture is still around
+            btnSave.setVisibility(View.VISIBLE);
+        }
+    };
 
     private final ActivityResultLauncher<String> pickImageLauncher =
             registerForActivityResult(new ActivityResultContracts.GetContent(), uri -> {
@@ -79,13 +127,19 @@ public class PhotoPreviewFragment extends Fragment {
         if (getArguments() != null) {
             photoUri = getArguments().getString(ARG_PHOTO_URI);
             isTemp = getArguments().getBoolean(ARG_IS_TEMP, false);
+            handoffId = getArguments().getString(ARG_HANDOFF_ID);
+            shutterAt = getArguments().getLong(ARG_SHUTTER_AT, 0L);
+            autoTranslate = getArguments().getBoolean(ARG_AUTO_TRANSLATE, false);
+            seenAt = getArguments().getLong(ARG_SEEN_AT, 0L);
+        }
+        if (handoffId != null) {
+            handoffCapture = CaptureHandoff.getInstance(requireContext()).get(handoffId);
         }
 
-        // Initialize YOLO classifier
-        try {
-            yoloClassifier = new YOLOv5Classifier(requireContext().getAssets(), "yolov5s-fp16.tflite");
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to load YOLO model", e);
+        // Keep the capture out of the cache eviction while this screen shows it
+        if (isTemp && photoUri != null) {
+            pinnedCapture = new File(Uri.parse(photoUri).getPath());
+            CaptureCacheManager.getInstance(requireContext()).pin(pinnedCapture);
         }
     }
 
@@ -96,22 +150,17 @@ public class PhotoPreviewFragment extends Fragment {
         View view = inflater.inflate(R.layout.fragment_photo_preview, container, false);
 
         imgPreview = view.findViewById(R.id.img_preview);
+        detectionOverlay = view.findViewById(R.id.detection_overlay);
         txtDetectedObjects = view.findViewById(R.id.txt_detected_objects);
         FloatingActionButton btnBack = view.findViewById(R.id.btn_back_to_camera);
         btnSave = view.findViewById(R.id.btn_save_photo);
         btnProceedTranslation = view.findViewById(R.id.btn_proceed_translation);
+        setupDetectionTuning(view);
 
         btnBack.setOnClickListener(v -> {
             // Delete temp file if exists
-            if (isTemp && photoUri != null) {
-                try {
-                    File tempFile = new File(Uri.parse(photoUri).getPath());
-                    if (tempFile.exists()) {
-                        tempFile.delete();
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Failed to delete temp file", e);
-                }
+            if (isTemp && pinnedCapture != null) {
+                releaseCapture(true);
             }
             NavController navController = Navigation.findNavController(requireActivity(), R.id.nav_host_fragment);
             navController.navigateUp();
@@ -124,9 +173,16 @@ public class PhotoPreviewFragment extends Fragment {
         // Proceed to Translation button
         btnProceedTranslation.setOnClickListener(v -> proceedToTranslation());
 
+        PhotoSaveQueue.getInstance(requireContext()).addListener(saveListener);
+
         // Load and display the photo
-        if (photoUri != null) {
+        if (handoffCapture != null) {
+            loadFromHandoff();
+        } else if (photoUri != null) {
             loadAndDetectObjects(photoUri);
+        } else if (handoffId != null) {
+            // The process was restarted and the in-memory capture is gone
+            Toast.makeText(requireContext(), "Failed to load image", Toast.LENGTH_SHORT).show();
         }
 
         return view;
@@ -148,11 +204,7 @@ public class PhotoPreviewFragment extends Fragment {
             imgPreview.setImageBitmap(bitmap);
 
             // Detect objects
-            if (yoloClassifier != null) {
-                detectObjects(bitmap);
-            } else {
-                txtDetectedObjects.setText(R.string.object_detection_unavailable);
-            }
+            detectObjects(bitmap);
 
         } catch (Exception e) {
             Log.e(TAG, "Error loading image", e);
@@ -160,6 +212,65 @@ public class PhotoPreviewFragment extends Fragment {
         }
     }
 
+    // Decodes the camera's JPEG straight from memory; no file involved
+    private void loadFromHandoff() {
+        txtDetectedObjects.setText(R.string.analyzing_image);
+        CaptureHandoff.Capture capture = handoffCapture;
+        new Thread(() -> {
+            Bitmap bitmap = CaptureHandoff.decode(capture);
+            mainHandler.post(() -> {
+                if (!isAdded()) return;
+                if (bitmap == null) {
+                    Toast.makeText(requireContext(), "Failed to load image", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                currentBitmap = bitmap;
+                imgPreview.setImageBitmap(bitmap);
+                detectObjects(bitmap);
+            });
+        }).start();
+    }
+
+    // Runs next once the photo exists as a file. An in-memory capture is written to the
+    // capture cache first, so it only touches disk when something actually needs a file.
+    private void withPhotoFile(Runnable next) {
+        if (photoUri != null || handoffCapture == null) {
+            next.run();
+            return;
+        }
+        CaptureHandoff handoff = CaptureHandoff.getInstance(requireContext());
+        CaptureHandoff.Capture capture = handoffCapture;
+        new Thread(() -> {
+            try {
+                File file = handoff.persist(capture);
+                mainHandler.post(() -> {
+                    if (!isAdded()) return;
+                    if (photoUri == null) {
+                        photoUri = Uri.fromFile(file).toString();
+                        // Same treatment as a capture that arrived as a file
+                        pinnedCapture = file;
+                        CaptureCacheManager.getInstance(requireContext()).pin(file);
+                    }
+                    next.run();
+                });
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write capture", e);
+                mainHandler.post(() -> {
+                    if (!isAdded()) return;
+                    Toast.makeText(requireContext(), "Failed to save photo", Toast.LENGTH_SHORT).show();
+                    if (isTemp) btnSave.setVisibility(View.VISIBLE);
+                });
+            }
+        }).start();
+    }
+
+    private void reportShutterToResult() {
+        if (shutterAt <= 0) return;
+        String path = handoffCapture != null ? "memory" : "file";
+        PerfMetrics.record("capture.shutter_to_result_ms." + path, SystemClock.elapsedRealtime() - shutterAt);
+        shutterAt = 0;
+    }
+
     private Bitmap loadBitmapFromUri(Uri uri) throws IOException {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
             ImageDecoder.Source source = ImageDecoder.createSource(requireContext().getContentResolver(), uri);
@@ -171,66 +282,83 @@ public class PhotoPreviewFragment extends Fragment {
 
     private void detectObjects(Bitmap bitmap) {
         txtDetectedObjects.setText(R.string.analyzing_image);
+        Context appContext = requireContext().getApplicationContext();
+        DetectorProvider detectorProvider = DetectorProvider.getInstance(appContext);
+        float startThreshold = threshold;
+        boolean[] startClassMask = classMask;
+        boolean tiledEnabled = SettingsStore.getInstance(appContext).get(SettingsStore.TILED_DETECTION);
+        tileCandidates = null;
 
         new Thread(() -> {
+            // Shared detector, normally already loaded during startup
+            try {
+                yoloClassifier = detectorProvider.get(DetectionUseCase.STILL);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to load YOLO model", e);
+                mainHandler.post(() -> {
+                    if (isAdded()) txtDetectedObjects.setText(R.string.object_detection_unavailable);
+                });
+                return;
+            }
+            // Classes enabled by the saved preset; the detector skips the others entirely
+            boolean[] preset = DetectionClassPreset.currentMask(appContext, yoloClassifier.getLabels());
+            YOLOv5Classifier.Options options = buildOptions(startThreshold, preset, startClassMask);
+
             try {
                 Log.d(TAG, "Starting object detection...");
                 Log.d(TAG, "Bitmap size: " + bitmap.getWidth() + "x" + bitmap.getHeight());
                 Log.d(TAG, "Bitmap config: " + bitmap.getConfig());
 
-                // Ensure bitmap is in correct format - MUST create mutable copy
+                // The detector reads pixels, so hardware bitmaps from ImageDecoder need a
+                // software copy. Boxes go on the overlay, so nothing needs to be mutable.
                 Bitmap processedBitmap = bitmap;
                 if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
                     Log.d(TAG, "Converting bitmap to ARGB_8888");
-                    processedBitmap = bitmap.copy(Bitmap.Config.ARGB_8888, true);
-                } else {
-                    // Create mutable copy even if format is correct
-                    processedBitmap = bitmap.copy(Bitmap.Config.ARGB_8888, true);
+                    processedBitmap = bitmap.copy(Bitmap.Config.ARGB_8888, false);
                 }
-
-                // Perform object detection on the processed bitmap
-                List<YOLOv5Classifier.Result> results = yoloClassifier.detect(processedBitmap);
-                Log.d(TAG, "Detection complete. Found " + results.size() + " objects");
-
-                // Extract unique labels
-                Set<String> uniqueLabels = new LinkedHashSet<>();
-                for (YOLOv5Classifier.Result result : results) {
-                    uniqueLabels.add(result.label);
-                    Log.d(TAG, "Detected: " + result.label + " with confidence " + (result.conf * 100) + "%");
+                boolean tiled = tiledEnabled && TiledDetector.isWorthTiling(processedBitmap, yoloClassifier);
+
+                // Perform object detection on the processed bitmap. The classifier keeps the raw
+                // output, so the threshold slider and class filter can re-run postprocess only.
+                List<YOLOv5Classifier.Result> results;
+                int outputId;
+                synchronized (yoloClassifier) {
+                    results = yoloClassifier.detect(processedBitmap, options);
+                    outputId = yoloClassifier.getOutputId();
                 }
+                Log.d(TAG, "Detection complete. Found " + results.size() + " objects");
 
-                // Final bitmap for UI update
-                final Bitmap finalBitmap = processedBitmap;
-
-                // Update UI on main thread
-                requireActivity().runOnUiThread(() -> {
-                    if (uniqueLabels.isEmpty()) {
-                        txtDetectedObjects.setText(R.string.no_objects_detected);
+                // Update UI on main thread; the user may have left during inference
+                mainHandler.post(() -> {
+                    if (!isAdded()) return;
+                    presetMask = preset;
+                    detectionOutputId = outputId;
+                    detectionTuning.setVisibility(View.VISIBLE);
+                    showDetections(results);
+                    reportShutterToResult();
+                    if (autoTranslate && !results.isEmpty()) {
+                        // Only for the first detection; coming back here shows the preview
+                        autoTranslate = false;
+                        proceedToTranslation();
+                    } else if (results.isEmpty() && !tiled) {
                         Log.w(TAG, "No objects detected - showing dialog");
                         // Show dialog asking if user wants to translate their own word
                         showNoDetectionDialog();
-                    } else {
-                        String detectedText = "Detected: " + String.join(", ", uniqueLabels);
-                        txtDetectedObjects.setText(detectedText);
-                        Log.d(TAG, "Detected objects: " + detectedText);
-                    }
-
-                    // Draw bounding boxes on image
-                    if (!results.isEmpty()) {
-                        Bitmap annotatedBitmap = yoloClassifier.drawDetections(finalBitmap, results);
-                        imgPreview.setImageBitmap(annotatedBitmap);
-                        currentBitmap = annotatedBitmap;
                     }
                 });
 
-                // Store detected objects for translation
-                detectedObjectsList.clear();
-                detectedObjectsList.addAll(uniqueLabels);
+                // The whole-image results are already showing; the tiles refine them
+                if (tiled) {
+                    detectSmallObjects(appContext, processedBitmap, preset, results, options, startClassMask, outputId);
+                }
+                // Only the original stays alive; the copy was just for the detector
+                if (processedBitmap != bitmap) processedBitmap.recycle();
 
             } catch (Exception e) {
                 Log.e(TAG, "Error during object detection", e);
                 e.printStackTrace();
-                requireActivity().runOnUiThread(() -> {
+                mainHandler.post(() -> {
+                    if (!isAdded()) return;
                     txtDetectedObjects.setText(R.string.detection_failed);
                     // Also show dialog for failed detection
                     showNoDetectionDialog();
@@ -239,6 +367,186 @@ public class PhotoPreviewFragment extends Fragment {
         }).start();
     }
 
+    // Runs the tiled small-object pass over a large photo and merges its boxes into the
+    // whole-image results. Blocks; runs on the detection thread.
+    private void detectSmallObjects(Context appContext, Bitmap bitmap, boolean[] preset,
+                                    List<YOLOv5Classifier.Result> whole, YOLOv5Classifier.Options options,
+                                    boolean[] startClassMask, int outputId) {
+        List<YOLOv5Classifier.Result> candidates;
+        try {
+            // Down to the slider's minimum, so later threshold changes need no new pass
+            candidates = TiledDetector.getInstance(appContext).detect(bitmap,
+                    MIN_THRESHOLD_PERCENT / 100f, preset, TiledDetector.DEFAULT_BUDGET_MS).candidates;
+        } catch (Exception e) {
+            Log.e(TAG, "Tiled detection failed", e);
+            candidates = new ArrayList<>();
+        }
+        List<YOLOv5Classifier.Result> merged = TiledDetector.merge(whole, candidates, options, yoloClassifier.getLabels());
+        List<YOLOv5Classifier.Result> tiles = candidates;
+        mainHandler.post(() -> {
+            if (!isAdded() || getView() == null || detectionOutputId != outputId) return;
+            tileCandidates = tiles;
+            if (options.threshold != threshold || startClassMask != classMask) {
+                // The user re-tuned while the tiles ran
+                reevaluateDetections();
+            } else {
+                showDetections(merged);
+            }
+            if (autoTranslate && !merged.isEmpty()) {
+                autoTranslate = false;
+                proceedToTranslation();
+            } else if (merged.isEmpty()) {
+                showNoDetectionDialog();
+            }
+        });
+    }
+
+    // Updates the label text, boxes and translation candidates for a new set of results
+    private void showDetections(List<YOLOv5Classifier.Result> results) {
+        // Extract unique labels
+        Set<String> uniqueLabels = new LinkedHashSet<>();
+        for (YOLOv5Classifier.Result result : results) {
+            uniqueLabels.add(result.label);
+        }
+
+        if (uniqueLabels.isEmpty()) {
+            txtDetectedObjects.setText(R.string.no_objects_detected);
+        } else {
+            String detectedText = "Detected: " + String.join(", ", uniqueLabels);
+            txtDetectedObjects.setText(detectedText);
+            Log.d(TAG, "Detected objects: " + detectedText);
+        }
+
+        detectionResults.clear();
+        detectionResults.addAll(results);
+
+        // Store detected objects for translation (best first)
+        detectedObjectsList.clear();
+        detectedObjectsList.addAll(uniqueLabels);
+
+        // Draw bounding boxes over the image; the photo itself stays untouched
+        if (currentBitmap != null) {
+            detectionOverlay.setResults(imgPreview, currentBitmap.getWidth(), currentBitmap.getHeight(), results);
+        }
+    }
+
+    private YOLOv5Classifier.Options currentOptions() {
+        return buildOptions(threshold, presetMask, classMask);
+    }
+
+    // The per-photo filter narrows the saved preset; either may be null (no filtering)
+    private static YOLOv5Classifier.Options buildOptions(float threshold, boolean[] preset, boolean[] photoMask) {
+        YOLOv5Classifier.Options options = new YOLOv5Classifier.Options(threshold, MAX_RESULTS);
+        if (preset == null || photoMask == null) {
+            options.classMask = preset != null ? preset : photoMask;
+        } else {
+            boolean[] mask = new boolean[Math.min(preset.length, photoMask.length)];
+            for (int i = 0; i < mask.length; i++) mask[i] = preset[i] && photoMask[i];
+            options.classMask = mask;
+        }
+        return options;
+    }
+
+    private void setupDetectionTuning(View view) {
+        detectionTuning = view.findViewById(R.id.detection_tuning);
+        TextView txtThreshold = view.findViewById(R.id.txt_threshold);
+        SeekBar seekThreshold = view.findViewById(R.id.seek_threshold);
+        btnClassFilter = view.findViewById(R.id.btn_class_filter);
+
+        seekThreshold.setProgress(Math.round(threshold * 100) - MIN_THRESHOLD_PERCENT);
+        txtThreshold.setText(getString(R.string.confidence_threshold, Math.round(threshold * 100)));
+        seekThreshold.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                int percent = progress + MIN_THRESHOLD_PERCENT;
+                txtThreshold.setText(getString(R.string.confidence_threshold, percent));
+                threshold = percent / 100f;
+                if (fromUser) reevaluateDetections();
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {
+            }
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {
+            }
+        });
+
+        btnClassFilter.setOnClickListener(v -> showClassFilterDialog());
+    }
+
+    // Re-runs only postprocess on the kept output. Requests are coalesced: while one is
+    // running, slider moves just replace the next one.
+    private void reevaluateDetections() {
+        if (yoloClassifier == null) return;
+        YOLOv5Classifier classifier = yoloClassifier;
+        YOLOv5Classifier.Options options = currentOptions();
+        int outputId = detectionOutputId;
+        List<YOLOv5Classifier.Result> tiles = tileCandidates;
+        int request = ++tuningRequest;
+        tuningExecutor.execute(() -> {
+            if (request != tuningRequest) return;
+            List<YOLOv5Classifier.Result> whole = classifier.repostprocess(options, outputId);
+            if (whole == null) return;
+            List<YOLOv5Classifier.Result> results = tiles != null
+                    ? TiledDetector.merge(whole, tiles, options, classifier.getLabels()) : whole;
+            mainHandler.post(() -> {
+                if (isAdded() && request == tuningRequest) showDetections(results);
+            });
+        });
+    }
+
+    private void showClassFilterDialog() {
+        if (yoloClassifier == null) return;
+        YOLOv5Classifier classifier = yoloClassifier;
+        boolean[] preset = presetMask;
+        List<YOLOv5Classifier.Result> tiles = tileCandidates;
+        tuningExecutor.execute(() -> {
+            // Classes that appear anywhere in this image, even well below the threshold
+            List<String> candidates = classifier.candidateLabels(MIN_THRESHOLD_PERCENT / 100f, preset);
+            if (tiles != null) {
+                for (YOLOv5Classifier.Result r : tiles) {
+                    if (!candidates.contains(r.label)) candidates.add(r.label);
+                }
+            }
+            List<String> allLabels = classifier.getLabels();
+            mainHandler.post(() -> {
+                if (!isAdded() || candidates.isEmpty()) return;
+                String[] names = candidates.toArray(new String[0]);
+                boolean[] checked = new boolean[names.length];
+                for (int i = 0; i < names.length; i++) {
+                    int index = allLabels.indexOf(names[i]);
+                    checked[i] = classMask == null || (index >= 0 && classMask[index]);
+                }
+                new androidx.appcompat.app.AlertDialog.Builder(requireContext())
+                        .setTitle(R.string.class_filter_title)
+                        .setMultiChoiceItems(names, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                        .setPositiveButton("OK", (dialog, which) -> {
+                            boolean all = true;
+                            boolean[] mask = new boolean[allLabels.size()];
+                            for (int i = 0; i < names.length; i++) {
+                                int index = allLabels.indexOf(names[i]);
+                                if (index >= 0) mask[index] = checked[i];
+                                all &= checked[i];
+                            }
+                            classMask = all ? null : mask;
+                            btnClassFilter.setText(all ? getString(R.string.all_classes)
+                                    : countChecked(checked) + "/" + names.length);
+                            reevaluateDetections();
+                        })
+                        .setNegativeButton("Cancel", null)
+                        .show();
+            });
+        });
+    }
+
+    private static int countChecked(boolean[] checked) {
+        int n = 0;
+        for (boolean b : checked) if (b) n++;
+        return n;
+    }
+
     private void showNoDetectionDialog() {
         new androidx.appcompat.app.AlertDialog.Builder(requireContext())
                 .setTitle("No Objects Detected")
@@ -286,16 +594,18 @@ public class PhotoPreviewFragment extends Fragment {
                 }
 
                 // Valid input - proceed to translation
-                Bundle bundle = new Bundle();
-                // Pass empty array to keep "Object detected: NONE"
-                bundle.putStringArray("detected_objects", new String[0]);
-                bundle.putString("photo_uri", photoUri);
-                // Pass user's custom word separately
-                bundle.putString("user_input_text", userInput);
-
-                NavController navController = Navigation.findNavController(requireActivity(), R.id.nav_host_fragment);
-                navController.navigate(R.id.action_photoPreviewFragment_to_translationFragment, bundle);
                 dialog.dismiss();
+                withPhotoFile(() -> {
+                    Bundle bundle = new Bundle();
+                    // Pass empty array to keep "Object detected: NONE"
+                    bundle.putStringArray("detected_objects", new String[0]);
+                    bundle.putString("photo_uri", photoUri);
+                    // Pass user's custom word separately
+                    bundle.putString("user_input_text", userInput);
+
+                    NavController navController = Navigation.findNavController(requireActivity(), R.id.nav_host_fragment);
+                    navController.navigate(R.id.action_photoPreviewFragment_to_translationFragment, bundle);
+                });
             });
         });
 
@@ -303,7 +613,7 @@ public class PhotoPreviewFragment extends Fragment {
     }
 
     private void savePhoto() {
-        if (currentBitmap == null) {
+        if (currentBitmap == null || (photoUri == null && handoffCapture == null)) {
             Toast.makeText(requireContext(), "No photo to save", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -317,85 +627,32 @@ public class PhotoPreviewFragment extends Fragment {
             }
         }
 
-        new Thread(() -> {
-            try {
-                String name = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss-SSS", Locale.US)
-                        .format(System.currentTimeMillis());
-
-                Uri savedUri = null;
-
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                    // Use scoped storage via MediaStore
-                    ContentValues contentValues = new ContentValues();
-                    contentValues.put(MediaStore.MediaColumns.DISPLAY_NAME, name);
-                    contentValues.put(MediaStore.MediaColumns.MIME_TYPE, "image/jpeg");
-                    contentValues.put(MediaStore.Images.Media.RELATIVE_PATH,
-                            Environment.DIRECTORY_PICTURES + "/CamStudy");
-
-                    savedUri = requireContext().getContentResolver().insert(
-                            MediaStore.Images.Media.EXTERNAL_CONTENT_URI, contentValues);
-
-                    if (savedUri != null) {
-                        try (OutputStream out = requireContext().getContentResolver().openOutputStream(savedUri)) {
-                            currentBitmap.compress(Bitmap.CompressFormat.JPEG, 100, out);
-                        }
-                    }
-                } else {
-                    // Legacy external storage
-                    File dir = new File(Environment.getExternalStoragePublicDirectory(
-                            Environment.DIRECTORY_PICTURES), "CamStudy");
-                    if (!dir.exists() && !dir.mkdirs()) {
-                        throw new IOException("Cannot create directory");
-                    }
-                    File photoFile = new File(dir, name + ".jpg");
-                    try (FileOutputStream out = new FileOutputStream(photoFile)) {
-                        currentBitmap.compress(Bitmap.CompressFormat.JPEG, 100, out);
-                    }
-                    savedUri = Uri.fromFile(photoFile);
-
-                    // Trigger media scan
-                    android.media.MediaScannerConnection.scanFile(requireContext(),
-                            new String[]{photoFile.getAbsolutePath()},
-                            new String[]{"image/jpeg"}, null);
-                }
-
-                if (savedUri != null) {
-                    long timestamp = System.currentTimeMillis();
-                    new PhotoDatabase(requireContext()).savePhoto(savedUri.toString(), timestamp);
-
-                    // Delete temp file
-                    if (isTemp && photoUri != null) {
-                        try {
-                            File tempFile = new File(Uri.parse(photoUri).getPath());
-                            if (tempFile.exists()) {
-                                tempFile.delete();
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Failed to delete temp file", e);
-                        }
-                    }
-
-                    Uri finalSavedUri = savedUri;
-                    requireActivity().runOnUiThread(() -> {
-                        Toast.makeText(requireContext(), "Photo saved to gallery!", Toast.LENGTH_SHORT).show();
-                        btnSave.setVisibility(View.GONE);
-                        isTemp = false;
-                        photoUri = finalSavedUri.toString();
-                    });
-                } else {
-                    throw new IOException("Failed to create file");
-                }
+        btnSave.setVisibility(View.GONE);
+        withPhotoFile(this::enqueueSave);
+    }
 
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to save photo", e);
-                requireActivity().runOnUiThread(() ->
-                        Toast.makeText(requireContext(), "Failed to save photo: " + e.getMessage(),
-                                Toast.LENGTH_LONG).show());
-            }
-        }).start();
+    private void enqueueSave() {
+        // The queue re-draws the boxes from the detections when burning them in is on, so we
+        // hand it the original capture rather than the annotated bitmap
+        PhotoSaveQueue.SaveJob job = new PhotoSaveQueue.SaveJob(
+                new File(Uri.parse(photoUri).getPath()),
+                isTemp,
+                detectionResults,
+                SettingsFragment.isBurnAnnotationsEnabled(requireContext()),
+                SettingsFragment.getSaveFormat(requireContext()),
+                SettingsFragment.getSaveQuality(requireContext()));
+        pendingSaveId = PhotoSaveQueue.getInstance(requireContext()).enqueue(job);
+
+        // The queue owns the temp file from here on; don't delete it on back
+        isTemp = false;
+        Toast.makeText(requireContext(), "Saving photo...", Toast.LENGTH_SHORT).show();
     }
 
     private void proceedToTranslation() {
+        withPhotoFile(this::navigateToTranslation);
+    }
+
+    private void navigateToTranslation() {
         // Pass the detected objects list (can be empty) and photo URI to the TranslationFragment
         Bundle bundle = new Bundle();
         // Convert ArrayList to String[] array as expected by navigation arguments
@@ -403,15 +660,38 @@ public class PhotoPreviewFragment extends Fragment {
         bundle.putStringArray("detected_objects", detectedObjectsArray);
         bundle.putString("photo_uri", photoUri);
 
+        if (seenAt > 0) {
+            PerfMetrics.record("capture.seen_to_translation_ms", SystemClock.elapsedRealtime() - seenAt);
+            seenAt = 0;
+        }
         NavController navController = Navigation.findNavController(requireActivity(), R.id.nav_host_fragment);
         navController.navigate(R.id.action_photoPreviewFragment_to_translationFragment, bundle);
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        PhotoSaveQueue.getInstance(requireContext()).removeListener(saveListener);
+    }
+
+    private void releaseCapture(boolean discard) {
+        CaptureCacheManager cacheManager = CaptureCacheManager.getInstance(requireContext());
+        cacheManager.unpin(pinnedCapture);
+        if (discard) {
+            cacheManager.discard(pinnedCapture);
+        }
+        pinnedCapture = null;
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
-        if (yoloClassifier != null) {
-            yoloClassifier.close();
+        if (pinnedCapture != null) {
+            releaseCapture(false);
+        }
+        if (handoffId != null) {
+            CaptureHandoff.getInstance(requireContext()).release(handoffId);
         }
+        tuningExecutor.shutdownNow();
     }
 }
@@ -0,0 +1,561 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: PhotoSaveQueue.java
+ * Last Modified: 18/10/2026 9:12
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.ImageDecoder;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.os.SystemClock;
+import android.provider.MediaStore;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Saves photos to the gallery from a single background worker that outlives any screen.
+// Each job is journaled to disk before it runs, so jobs interrupted by process death are
+// picked up again by resumePending on the next start.
+public class PhotoSaveQueue {
+
+    private static final String TAG = "PhotoSaveQueue";
+    private static final String JOURNAL_DIR = "save_queue";
+    private static final String JOURNAL_SUFFIX = ".json";
+
+    private static volatile PhotoSaveQueue instance;
+
+    private final Context appContext;
+    private final File journalDir;
+    private final Gson gson = new Gson();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<String> queuedIds = ConcurrentHashMap.newKeySet();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService journalExecutor = Executors.newSingleThreadExecutor();
+
+    // One worker thread so back-to-back saves don't fight each other (or the UI) for CPU
+    private final ExecutorService worker = new ThreadPoolExecutor(1, 1,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+        Thread t = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "photo-save");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private PhotoSaveQueue(Context context) {
+        appContext = context.getApplicationContext();
+        journalDir = new File(appContext.getFilesDir(), JOURNAL_DIR);
+        ((ThreadPoolExecutor) worker).allowCoreThreadTimeOut(true);
+    }
+
+    public static PhotoSaveQueue getInstance(Context context) {
+        if (instance == null) {
+            synchronized (PhotoSaveQueue.class) {
+                if (instance == null) {
+                    instance = new PhotoSaveQueue(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Journals the job and queues it; returns the job id
+    public String enqueue(@NonNull SaveJob job) {
+        // Journal on its own thread so it never waits behind an encode in progress
+        journalExecutor.execute(() -> {
+            try {
+                writeJournal(job);
+            } catch (IOException e) {
+                // Still try to save now, it just won't survive a crash
+                Log.e(TAG, "Failed to journal save job " + job.id, e);
+            }
+            submit(job);
+        });
+        return job.id;
+    }
+
+    // Re-queues every job left in the journal by a previous process
+    // done runs on the worker once every journaled job is queued again and
+    // its source pinned
+    public void resumePending(Runnable done) {
+        worker.execute(() -> {
+            try {
+                File[] files = journalDir.listFiles((dir, name) -> name.endsWith(JOURNAL_SUFFIX));
+                if (files == null) return;
+                for (File f : files) {
+                    SaveJob job = readJournal(f);
+                    if (job == null) {
+                        f.delete();
+                        continue;
+                    }
+                    Log.d(TAG, "Resuming save job " + job.id);
+                    submit(job);
+                }
+            } finally {
+                done.run();
+            }
+        });
+    }
+
+    // Source files that still belong to a queued or journaled job
+    public Set<String> getPendingSourcePaths() {
+        Set<String> paths = new HashSet<>();
+        File[] files = journalDir.listFiles((dir, name) -> name.endsWith(JOURNAL_SUFFIX));
+        if (files != null) {
+            for (File f : files) {
+                SaveJob job = readJournal(f);
+                if (job != null && job.sourcePath != null) {
+                    paths.add(job.sourcePath);
+                }
+            }
+        }
+        return paths;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void submit(SaveJob job) {
+        if (!queuedIds.add(job.id)) return;
+        // Keep the cache manager from evicting the source while the job waits
+        File source = new File(job.sourcePath);
+        CaptureCacheManager cacheManager = CaptureCacheManager.getInstance(appContext);
+        cacheManager.pin(source);
+        worker.execute(() -> {
+            try {
+                run(job);
+            } finally {
+                cacheManager.unpin(source);
+                queuedIds.remove(job.id);
+            }
+        });
+    }
+
+    private void run(SaveJob job) {
+        File source = new File(job.sourcePath);
+        Uri savedUri = null;
+        Exception error = null;
+
+        try {
+            if (!source.exists()) {
+                throw new IOException("Source image is gone: " + job.sourcePath);
+            }
+
+            // A previous attempt may have died after creating its MediaStore row
+            if (job.outputUri != null) {
+                try {
+                    appContext.getContentResolver().delete(Uri.parse(job.outputUri), null, null);
+                } catch (Exception e) {
+                    Log.w(TAG, "Could not remove stale output " + job.outputUri, e);
+                }
+                job.outputUri = null;
+            }
+
+            // Hash the capture and look for near-duplicates already in the history
+            Long hash = PerceptualHash.ofFile(source);
+            if (hash != null) {
+                long lookupStart = System.nanoTime();
+                List<PhotoEntry> similar = PhotoDatabase.getInstance(appContext)
+                        .findSimilar(hash, PerceptualHash.DUPLICATE_DISTANCE);
+                PerfMetrics.record("save.dedupe_lookup_us", (System.nanoTime() - lookupStart) / 1000.0);
+                if (!similar.isEmpty()) {
+                    job.duplicateOf = similar.get(0).getUriString();
+                    Log.d(TAG, "Job " + job.id + " looks like " + job.duplicateOf);
+                }
+            }
+
+            boolean hasAnnotations = job.annotations != null && !job.annotations.isEmpty();
+            if ((!hasAnnotations || !job.burnAnnotations) && isJpeg(source)) {
+                // Nothing to draw, so the gallery copy is the capture itself: copy the bytes
+                // instead of decoding and re-encoding them
+                savedUri = writeToGallery(job, "image/jpeg", ".jpg", out -> transfer(source, out));
+            } else {
+                savedUri = encodeToGallery(job, source);
+            }
+
+            PhotoDatabase.getInstance(appContext).savePhoto(savedUri.toString(), System.currentTimeMillis(), hash);
+
+            if (job.deleteSource && !source.delete()) {
+                Log.w(TAG, "Failed to delete source " + source);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to save photo for job " + job.id, e);
+            error = e;
+            savedUri = null;
+            // Don't leave a half-written (IS_PENDING) row behind once the journal that knows
+            // about it is gone
+            if (job.outputUri != null) {
+                try {
+                    appContext.getContentResolver().delete(Uri.parse(job.outputUri), null, null);
+                } catch (Exception deleteError) {
+                    Log.w(TAG, "Could not remove failed output " + job.outputUri, deleteError);
+                }
+                job.outputUri = null;
+            }
+        }
+
+        // Success or a permanent failure both retire the job
+        new File(journalDir, job.id + JOURNAL_SUFFIX).delete();
+        notifyFinished(job, savedUri, error);
+    }
+
+    private Uri encodeToGallery(SaveJob job, File source) throws IOException {
+        Bitmap bitmap = decodeSource(source);
+        if (bitmap == null) {
+            throw new IOException("Cannot decode " + job.sourcePath);
+        }
+        try {
+            if (job.burnAnnotations && job.annotations != null && !job.annotations.isEmpty()) {
+                YOLOv5Classifier.drawDetectionsInPlace(bitmap, job.annotations);
+            }
+            EncodeFormat format = job.format != null ? job.format : EncodeFormat.JPEG;
+            return writeToGallery(job, format.mimeType, format.extension, out -> {
+                CountingOutputStream counting = new CountingOutputStream(out);
+                if (!bitmap.compress(format.compressFormat(), job.quality, counting)) {
+                    throw new IOException("Encoder rejected the image");
+                }
+                counting.flush();
+                return counting.count;
+            });
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    private Bitmap decodeSource(File source) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            // Same decoder as the preview so EXIF orientation matches what the user saw
+            ImageDecoder.Source src = ImageDecoder.createSource(source);
+            return ImageDecoder.decodeBitmap(src, (decoder, info, s) -> {
+                decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+                decoder.setMutableRequired(true);
+            });
+        } else {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inMutable = true;
+            Bitmap bitmap = BitmapFactory.decodeFile(source.getAbsolutePath(), options);
+            // BitmapFactory ignores EXIF; captures carry their rotation there, and the
+            // annotations were placed on the upright image
+            return bitmap != null ? applyExifRotation(source, bitmap) : null;
+        }
+    }
+
+    private static Bitmap applyExifRotation(File source, Bitmap bitmap) {
+        int orientation;
+        try {
+            orientation = new ExifInterface(source.getAbsolutePath())
+                    .getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read orientation of " + source, e);
+            return bitmap;
+        }
+        int degrees;
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                degrees = 90;
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                degrees = 180;
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                degrees = 270;
+                break;
+            default:
+                return bitmap;
+        }
+        Matrix matrix = new Matrix();
+        matrix.postRotate(degrees);
+        Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (rotated == bitmap) return bitmap;
+        bitmap.recycle();
+        // createBitmap with a matrix returns an immutable copy; drawing needs a mutable one
+        if (rotated.isMutable()) return rotated;
+        Bitmap mutable = rotated.copy(Bitmap.Config.ARGB_8888, true);
+        rotated.recycle();
+        return mutable;
+    }
+
+    // JPEG files start with the SOI marker FF D8 FF
+    private static boolean isJpeg(File file) {
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] magic = new byte[3];
+            return in.read(magic) == 3
+                    && (magic[0] & 0xFF) == 0xFF && (magic[1] & 0xFF) == 0xD8 && (magic[2] & 0xFF) == 0xFF;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Kernel-side copy from the capture file into the gallery file
+    private static long transfer(File source, FileOutputStream out) throws IOException {
+        try (FileChannel in = new FileInputStream(source).getChannel()) {
+            FileChannel target = out.getChannel();
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long moved = in.transferTo(position, size - position, target);
+                if (moved <= 0) break;
+                position += moved;
+            }
+            if (position != size) {
+                throw new IOException("Short copy: " + position + " of " + size + " bytes");
+            }
+            return size;
+        }
+    }
+
+    private Uri writeToGallery(SaveJob job, String mimeType, String extension, ImageWriter writer)
+            throws IOException {
+        String name = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss-SSS", Locale.US)
+                .format(job.createdAt);
+        ContentResolver resolver = appContext.getContentResolver();
+        long writeStart;
+        long bytesWritten;
+        Uri savedUri;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            // Use scoped storage via MediaStore
+            ContentValues contentValues = new ContentValues();
+            contentValues.put(MediaStore.MediaColumns.DISPLAY_NAME, name);
+            contentValues.put(MediaStore.MediaColumns.MIME_TYPE, mimeType);
+            contentValues.put(MediaStore.Images.Media.RELATIVE_PATH,
+                    Environment.DIRECTORY_PICTURES + "/CamStudy");
+            contentValues.put(MediaStore.MediaColumns.IS_PENDING, 1);
+
+            savedUri = resolver.insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, contentValues);
+            if (savedUri == null) {
+                throw new IOException("Failed to create file");
+            }
+            job.outputUri = savedUri.toString();
+            writeJournalQuietly(job);
+
+            ParcelFileDescriptor pfd = resolver.openFileDescriptor(savedUri, "w");
+            if (pfd == null) {
+                throw new IOException("Cannot open " + savedUri);
+            }
+            writeStart = SystemClock.elapsedRealtime();
+            try (FileOutputStream out = new ParcelFileDescriptor.AutoCloseOutputStream(pfd)) {
+                bytesWritten = writer.writeTo(out);
+            }
+
+            ContentValues publish = new ContentValues();
+            publish.put(MediaStore.MediaColumns.IS_PENDING, 0);
+            resolver.update(savedUri, publish, null, null);
+        } else {
+            // Legacy external storage
+            File dir = new File(Environment.getExternalStoragePublicDirectory(
+                    Environment.DIRECTORY_PICTURES), "CamStudy");
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Cannot create directory");
+            }
+            File photoFile = new File(dir, name + extension);
+            writeStart = SystemClock.elapsedRealtime();
+            try (FileOutputStream out = new FileOutputStream(photoFile)) {
+                bytesWritten = writer.writeTo(out);
+            }
+            savedUri = Uri.fromFile(photoFile);
+
+            // Trigger media scan
+            android.media.MediaScannerConnection.scanFile(appContext,
+                    new String[]{photoFile.getAbsolutePath()},
+                    new String[]{mimeType}, null);
+        }
+
+        long writeMs = SystemClock.elapsedRealtime() - writeStart;
+        PerfMetrics.record("save.write_ms", writeMs);
+        PerfMetrics.record("save.bytes", bytesWritten);
+        Log.d(TAG, "Job " + job.id + ": " + mimeType + ", " + bytesWritten + " bytes in " + writeMs + " ms");
+        return savedUri;
+    }
+
+    private void notifyFinished(SaveJob job, @Nullable Uri savedUri, @Nullable Exception error) {
+        mainHandler.post(() -> {
+            if (error == null && job.duplicateOf != null) {
+                Toast.makeText(appContext, "Photo saved. A very similar photo is already in your history.",
+                        Toast.LENGTH_LONG).show();
+            } else if (error == null) {
+                Toast.makeText(appContext, "Photo saved to gallery!", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(appContext, "Failed to save photo: " + error.getMessage(),
+                        Toast.LENGTH_LONG).show();
+            }
+            for (Listener listener : listeners) {
+                listener.onSaveFinished(job, savedUri, error);
+            }
+        });
+    }
+
+    private void writeJournal(SaveJob job) throws IOException {
+        if (!journalDir.exists() && !journalDir.mkdirs()) {
+            throw new IOException("Cannot create " + journalDir);
+        }
+        // Write then rename so a crash never leaves a half-written journal entry
+        File tmp = new File(journalDir, job.id + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            gson.toJson(job, writer);
+        }
+        if (!tmp.renameTo(new File(journalDir, job.id + JOURNAL_SUFFIX))) {
+            tmp.delete();
+            throw new IOException("Cannot commit journal for " + job.id);
+        }
+    }
+
+    private void writeJournalQuietly(SaveJob job) {
+        try {
+            writeJournal(job);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to update journal for " + job.id, e);
+        }
+    }
+
+    @Nullable
+    private SaveJob readJournal(File f) {
+        try (Reader reader = new FileReader(f)) {
+            SaveJob job = gson.fromJson(reader, SaveJob.class);
+            return job != null && job.id != null && job.sourcePath != null ? job : null;
+        } catch (Exception e) {
+            Log.w(TAG, "Unreadable journal entry " + f.getName(), e);
+            return null;
+        }
+    }
+
+    private interface ImageWriter {
+        // Writes the image and returns the number of bytes written
+        long writeTo(FileOutputStream out) throws IOException;
+    }
+
+    public interface Listener {
+        // Called on the main thread; savedUri is null when error is set
+        void onSaveFinished(@NonNull SaveJob job, @Nullable Uri savedUri, @Nullable Exception error);
+    }
+
+    public enum EncodeFormat {
+        JPEG("image/jpeg", ".jpg"),
+        WEBP("image/webp", ".webp");
+
+        final String mimeType;
+        final String extension;
+
+        EncodeFormat(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        @SuppressWarnings("deprecation")
+        Bitmap.CompressFormat compressFormat() {
+            if (this == JPEG) return Bitmap.CompressFormat.JPEG;
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                    ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+        }
+    }
+
+    // Serialized as-is into the journal, so keep fields plain
+    public static final class SaveJob {
+        final String id;
+        final String sourcePath;
+        final boolean deleteSource;
+        final List<YOLOv5Classifier.Result> annotations;
+        final boolean burnAnnotations;
+        final EncodeFormat format;
+        final int quality;
+        final long createdAt;
+        String outputUri;
+        // Uri of a near-identical photo already in the history, if the worker found one
+        String duplicateOf;
+
+        public SaveJob(File source, boolean deleteSource, List<YOLOv5Classifier.Result> annotations,
+                       boolean burnAnnotations, EncodeFormat format, int quality) {
+            this.id = UUID.randomUUID().toString();
+            this.sourcePath = source.getAbsolutePath();
+            this.deleteSource = deleteSource;
+            this.annotations = new ArrayList<>(annotations);
+            this.burnAnnotations = burnAnnotations;
+            this.format = format;
+            this.quality = quality;
+            this.createdAt = System.currentTimeMillis();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        @Nullable
+        public String getDuplicateOf() {
+            return duplicateOf;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) throws IOException {
+            super(out);
+            if (out == null) throw new IOException("Cannot open output stream");
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -34,7 +34,7 @@ public class RegisterFragment extends Fragment {
     public View onCreateView(@NonNull LayoutInflater inflater,
                              @Nullable ViewGroup container,
                              @Nullable Bundle savedInstanceState) {
-        userDatabase = new UserDatabase(requireContext());
+        userDatabase = UserDatabase.getInstance(requireContext());
         return inflater.inflate(R.layout.fragment_register, container, false);
     }
 
@@ -90,23 +90,25 @@ public class RegisterFragment extends Fragment {
                 return;
             }
 
-            // Check if email already exists using database
-            if (userDatabase.checkEmailExists(email)) {
-                edtEmail.setError("Email already registered");
-                edtEmail.requestFocus();
-                Toast.makeText(getContext(), "This email is already registered. Please login instead.", Toast.LENGTH_SHORT).show();
-                return;
-            }
-
-            // Register user in database
-            if (userDatabase.registerUser(email, password)) {
-                Toast.makeText(getContext(), "Registration successful! Please login", Toast.LENGTH_SHORT).show();
-
-                NavController navController = Navigation.findNavController(requireActivity(), R.id.nav_host_fragment);
-                navController.popBackStack();
-            } else {
-                Toast.makeText(getContext(), "Registration failed. Please try again.", Toast.LENGTH_SHORT).show();
-            }
+            btnRegister.setEnabled(false);
+
+            // Register user in database; a duplicate email is reported by the insert itself
+            userDatabase.registerUserAsync(email, password, result -> {
+                if (!isAdded()) return;
+                btnRegister.setEnabled(true);
+                if (result == UserDatabase.RegisterResult.SUCCESS) {
+                    Toast.makeText(getContext(), "Registration successful! Please login", Toast.LENGTH_SHORT).show();
+
+                    NavController navController = Navigation.findNavController(requireActivity(), R.id.nav_host_fragment);
+                    navController.popBackStack();
+                } else if (result == UserDatabase.RegisterResult.EMAIL_TAKEN) {
+                    edtEmail.setError("Email already registered");
+                    edtEmail.requestFocus();
+                    Toast.makeText(getContext(), "This email is already registered. Please login instead.", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(getContext(), "Registration failed. Please try again.", Toast.LENGTH_SHORT).show();
+                }
+            });
         });
 
         btnBack.setOnClickListener(v -> {
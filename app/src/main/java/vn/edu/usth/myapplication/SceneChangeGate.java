@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: SceneChangeGate.java
+ * Last Modified: 18/10/2026 17:05
+ */
+
+package vn.edu.usth.myapplication;
+
+import java.nio.ByteBuffer;
+
+// Cheap "did anything change?" test for live detection. A frame's signature is a 16x16
+// grid of mean luma values sampled from the Y plane (1024 reads, well under a millisecond).
+// It is compared with the signature of the last frame that was actually inferred, so slow
+// drift still adds up to a change instead of slipping through frame by frame.
+// Not thread-safe; the live analyzer uses it from one thread.
+public class SceneChangeGate {
+
+    private static final int GRID = 16;
+    // Samples per grid cell along each axis
+    private static final int SAMPLES = 2;
+    // Mean absolute luma difference (0-255) below which two frames count as the same scene;
+    // sensor noise alone stays around 1-3
+    static final float DEFAULT_THRESHOLD = 6f;
+
+    private final float threshold;
+    private int[] current = new int[GRID * GRID];
+    private int[] reference = new int[GRID * GRID];
+    private boolean hasReference = false;
+    private float lastDifference = Float.MAX_VALUE;
+
+    public SceneChangeGate() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public SceneChangeGate(float threshold) {
+        this.threshold = threshold;
+    }
+
+    // Computes the signature of a Y plane. Returns true if it differs enough from the last
+    // inferred frame (or there is none yet) that the detector should run.
+    public boolean hasChanged(ByteBuffer luma, int rowStride, int pixelStride, int width, int height) {
+        int cellW = width / GRID;
+        int cellH = height / GRID;
+        if (cellW == 0 || cellH == 0) return true;
+        int stepX = Math.max(1, cellW / SAMPLES);
+        int stepY = Math.max(1, cellH / SAMPLES);
+        for (int gy = 0; gy < GRID; gy++) {
+            for (int gx = 0; gx < GRID; gx++) {
+                int sum = 0;
+                int baseY = gy * cellH + stepY / 2;
+                int baseX = gx * cellW + stepX / 2;
+                for (int sy = 0; sy < SAMPLES; sy++) {
+                    int rowOffset = (baseY + sy * stepY) * rowStride;
+                    for (int sx = 0; sx < SAMPLES; sx++) {
+                        sum += luma.get(rowOffset + (baseX + sx * stepX) * pixelStride) & 0xFF;
+                    }
+                }
+                current[gy * GRID + gx] = sum / (SAMPLES * SAMPLES);
+            }
+        }
+
+        if (!hasReference) {
+            lastDifference = Float.MAX_VALUE;
+            return true;
+        }
+        int total = 0;
+        for (int i = 0; i < current.length; i++) {
+            total += Math.abs(current[i] - reference[i]);
+        }
+        lastDifference = (float) total / current.length;
+        return lastDifference >= threshold;
+    }
+
+    // The frame last passed to hasChanged() was inferred; later frames compare against it
+    public void markInferred() {
+        int[] swap = reference;
+        reference = current;
+        current = swap;
+        hasReference = true;
+    }
+
+    public float getLastDifference() {
+        return lastDifference;
+    }
+
+    public void reset() {
+        hasReference = false;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: SessionManager.java
+ * Last Modified: 18/10/2026 12:10
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// In-memory copy of the logged-in user. Loaded once from UserDatabase on its background
+// thread at app start; after that reads never touch disk and changes are written through
+// to the database asynchronously. State changes happen on the main thread only.
+public class SessionManager {
+
+    private static volatile SessionManager instance;
+
+    private final UserDatabase userDatabase;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> pendingUntilLoaded = new ArrayList<>();
+
+    private volatile String email;
+    private volatile boolean loaded = false;
+    private boolean loading = false;
+    // Bumped on every login/logout so a slow initial load can't overwrite a newer state
+    private int generation = 0;
+
+    private SessionManager(Context context) {
+        userDatabase = UserDatabase.getInstance(context);
+    }
+
+    public static SessionManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SessionManager.class) {
+                if (instance == null) {
+                    instance = new SessionManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    public interface Listener {
+        void onSessionChanged(@Nullable String email);
+    }
+
+    // Starts reading the stored session; safe to call more than once. Main thread.
+    public void load() {
+        if (loaded || loading) return;
+        loading = true;
+        int startGeneration = generation;
+        long start = SystemClock.elapsedRealtime();
+        userDatabase.getLoggedInEmailAsync(stored -> {
+            loading = false;
+            PerfMetrics.record("session.load_ms", SystemClock.elapsedRealtime() - start);
+            if (generation == startGeneration) {
+                email = stored;
+            }
+            markLoaded();
+            notifyListeners();
+        });
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean isLoggedIn() {
+        return email != null;
+    }
+
+    @Nullable
+    public String getEmail() {
+        return email;
+    }
+
+    // Runs action on the main thread once the stored session is known
+    public void whenLoaded(Runnable action) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mainHandler.post(() -> whenLoaded(action));
+            return;
+        }
+        if (loaded) {
+            action.run();
+        } else {
+            pendingUntilLoaded.add(action);
+        }
+    }
+
+    // Main thread
+    public void login(String newEmail) {
+        generation++;
+        email = newEmail;
+        markLoaded();
+        notifyListeners();
+        userDatabase.saveLoginSessionAsync(newEmail, true, null);
+    }
+
+    // Main thread
+    public void logout() {
+        generation++;
+        email = null;
+        markLoaded();
+        notifyListeners();
+        userDatabase.logoutAsync(null);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void markLoaded() {
+        if (loaded) return;
+        loaded = true;
+        List<Runnable> actions = new ArrayList<>(pendingUntilLoaded);
+        pendingUntilLoaded.clear();
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    private void notifyListeners() {
+        String current = email;
+        for (Listener listener : listeners) {
+            listener.onSessionChanged(current);
+        }
+    }
+}
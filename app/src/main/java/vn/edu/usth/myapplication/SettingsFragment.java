@@ -10,12 +10,12 @@ package vn.edu.usth.myapplication;
 
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.LinearLayout;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -29,23 +29,50 @@ import com.google.android.material.switchmaterial.SwitchMaterial;
 
 public class SettingsFragment extends Fragment {
 
-    private SharedPreferences sharedPreferences;
+    // Matches R.array.photo_quality (High, Medium, Low)
+    private static final int[] SAVE_QUALITY_VALUES = {95, 85, 70};
+    private static final String[] SAVE_FORMAT_NAMES = {"JPEG", "WebP"};
+
+    private SettingsStore settings;
     private SwitchMaterial switchFlash;
     private SwitchMaterial switchDarkMode;
-    private UserDatabase userDatabase;
+    private SwitchMaterial switchBurnAnnotations;
+    private SwitchMaterial switchLiveDetection;
+    private SwitchMaterial switchAutoCapture;
+    private SwitchMaterial switchTiledDetection;
     private boolean isDarkModeChanging = false;
     private LinearLayout btnFeedback;
+    private TextView txtSaveFormat;
+    private TextView txtSaveQuality;
+    private TextView txtDetectionClasses;
 
     // Public method to get flash preference for use in other fragments
     public static boolean isFlashEnabled(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences("PhotoMagicPrefs", Context.MODE_PRIVATE);
-        return prefs.getBoolean("flash_mode", false);
+        return SettingsStore.getInstance(context).get(SettingsStore.FLASH_MODE);
+    }
+
+    // Whether saved photos get the detection boxes drawn into their pixels
+    public static boolean isBurnAnnotationsEnabled(Context context) {
+        return SettingsStore.getInstance(context).get(SettingsStore.BURN_ANNOTATIONS);
+    }
+
+    // Encode format used by the save queue (JPEG or WEBP)
+    public static PhotoSaveQueue.EncodeFormat getSaveFormat(Context context) {
+        try {
+            return PhotoSaveQueue.EncodeFormat.valueOf(SettingsStore.getInstance(context).get(SettingsStore.SAVE_FORMAT));
+        } catch (IllegalArgumentException e) {
+            return PhotoSaveQueue.EncodeFormat.JPEG;
+        }
+    }
+
+    // Encoder quality (0-100) used by the save queue
+    public static int getSaveQuality(Context context) {
+        return SettingsStore.getInstance(context).get(SettingsStore.SAVE_QUALITY);
     }
 
     // Public method to check if dark mode is enabled
     public static boolean isDarkModeEnabled(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences("PhotoMagicPrefs", Context.MODE_PRIVATE);
-        return prefs.getBoolean("dark_mode", false);
+        return SettingsStore.getInstance(context).get(SettingsStore.DARK_MODE);
     }
 
     @Override
@@ -53,24 +80,45 @@ public class SettingsFragment extends Fragment {
                              Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_settings, container, false);
 
-        sharedPreferences = requireContext().getSharedPreferences("PhotoMagicPrefs", Context.MODE_PRIVATE);
-        userDatabase = new UserDatabase(requireContext());
+        settings = SettingsStore.getInstance(requireContext());
 
         switchFlash = view.findViewById(R.id.switch_flash);
         switchDarkMode = view.findViewById(R.id.switch_dark_mode);
+        switchBurnAnnotations = view.findViewById(R.id.switch_burn_annotations);
+        switchLiveDetection = view.findViewById(R.id.switch_live_detection);
+        switchAutoCapture = view.findViewById(R.id.switch_auto_capture);
+        switchTiledDetection = view.findViewById(R.id.switch_tiled_detection);
         LinearLayout logoutLayout = view.findViewById(R.id.layout_logout);
         btnFeedback = view.findViewById(R.id.btnFeedback);
+        txtSaveFormat = view.findViewById(R.id.txt_save_format);
+        txtSaveQuality = view.findViewById(R.id.txt_save_quality);
+        view.findViewById(R.id.layout_save_format).setOnClickListener(v -> showSaveFormatDialog());
+        view.findViewById(R.id.layout_save_quality).setOnClickListener(v -> showSaveQualityDialog());
+        txtDetectionClasses = view.findViewById(R.id.txt_detection_classes);
+        view.findViewById(R.id.layout_detection_classes).setOnClickListener(v -> showDetectionClassesDialog());
 
         // Load saved preferences
         loadPreferences();
 
         // Set up listeners
         switchFlash.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            savePreference("flash_mode", isChecked);
+            settings.set(SettingsStore.FLASH_MODE, isChecked);
             String message = isChecked ? "Flash enabled" : "Flash disabled";
             Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
         });
 
+        switchBurnAnnotations.setOnCheckedChangeListener((buttonView, isChecked) ->
+                settings.set(SettingsStore.BURN_ANNOTATIONS, isChecked));
+
+        switchLiveDetection.setOnCheckedChangeListener((buttonView, isChecked) ->
+                settings.set(SettingsStore.LIVE_DETECTION, isChecked));
+
+        switchAutoCapture.setOnCheckedChangeListener((buttonView, isChecked) ->
+                settings.set(SettingsStore.AUTO_CAPTURE, isChecked));
+
+        switchTiledDetection.setOnCheckedChangeListener((buttonView, isChecked) ->
+                settings.set(SettingsStore.TILED_DETECTION, isChecked));
+
         switchDarkMode.setOnCheckedChangeListener((buttonView, isChecked) -> {
             // Prevent recursive calls
             if (isDarkModeChanging) {
@@ -78,7 +126,7 @@ public class SettingsFragment extends Fragment {
             }
 
             // Get current saved dark mode preference
-            boolean currentDarkMode = sharedPreferences.getBoolean("dark_mode", false);
+            boolean currentDarkMode = settings.get(SettingsStore.DARK_MODE);
 
             // If the value actually changed, show restart dialog
             if (currentDarkMode != isChecked) {
@@ -106,14 +154,78 @@ public class SettingsFragment extends Fragment {
     }
 
     private void loadPreferences() {
-        switchFlash.setChecked(sharedPreferences.getBoolean("flash_mode", false));
-        switchDarkMode.setChecked(sharedPreferences.getBoolean("dark_mode", false));
+        switchFlash.setChecked(settings.get(SettingsStore.FLASH_MODE));
+        switchDarkMode.setChecked(settings.get(SettingsStore.DARK_MODE));
+        switchBurnAnnotations.setChecked(settings.get(SettingsStore.BURN_ANNOTATIONS));
+        switchLiveDetection.setChecked(settings.get(SettingsStore.LIVE_DETECTION));
+        switchAutoCapture.setChecked(settings.get(SettingsStore.AUTO_CAPTURE));
+        switchTiledDetection.setChecked(settings.get(SettingsStore.TILED_DETECTION));
+        updateSaveOptionLabels();
+    }
+
+    private void updateSaveOptionLabels() {
+        PhotoSaveQueue.EncodeFormat format = getSaveFormat(requireContext());
+        txtSaveFormat.setText(SAVE_FORMAT_NAMES[format.ordinal()]);
+        String[] qualityNames = getResources().getStringArray(R.array.photo_quality);
+        txtSaveQuality.setText(qualityNames[qualityIndex(getSaveQuality(requireContext()))]);
+        txtDetectionClasses.setText(DetectionClassPreset.current(requireContext())
+                .describe(DetectionClassPreset.isExcluding(requireContext())));
+    }
+
+    private static int qualityIndex(int quality) {
+        for (int i = 0; i < SAVE_QUALITY_VALUES.length; i++) {
+            if (quality >= SAVE_QUALITY_VALUES[i]) return i;
+        }
+        return SAVE_QUALITY_VALUES.length - 1;
+    }
+
+    private void showSaveFormatDialog() {
+        int checked = getSaveFormat(requireContext()).ordinal();
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Save Format")
+                .setSingleChoiceItems(SAVE_FORMAT_NAMES, checked, (dialog, which) -> {
+                    settings.set(SettingsStore.SAVE_FORMAT, PhotoSaveQueue.EncodeFormat.values()[which].name());
+                    updateSaveOptionLabels();
+                    dialog.dismiss();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
     }
 
-    private void savePreference(String key, boolean value) {
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putBoolean(key, value);
-        editor.apply();
+    private void showSaveQualityDialog() {
+        int checked = qualityIndex(getSaveQuality(requireContext()));
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Save Quality")
+                .setSingleChoiceItems(R.array.photo_quality, checked, (dialog, which) -> {
+                    settings.set(SettingsStore.SAVE_QUALITY, SAVE_QUALITY_VALUES[which]);
+                    updateSaveOptionLabels();
+                    dialog.dismiss();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    // Pick a class preset, then whether the detector keeps only those classes or ignores them
+    private void showDetectionClassesDialog() {
+        DetectionClassPreset[] presets = DetectionClassPreset.values();
+        String[] names = new String[presets.length];
+        for (int i = 0; i < presets.length; i++) names[i] = presets[i].displayName;
+        int[] selected = {DetectionClassPreset.current(requireContext()).ordinal()};
+        new AlertDialog.Builder(requireContext())
+                .setTitle(R.string.detection_classes)
+                .setSingleChoiceItems(names, selected[0], (dialog, which) -> selected[0] = which)
+                .setPositiveButton(R.string.detect_only_these, (dialog, which) ->
+                        saveDetectionPreset(presets[selected[0]], false))
+                .setNeutralButton(R.string.detect_all_except, (dialog, which) ->
+                        saveDetectionPreset(presets[selected[0]], true))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void saveDetectionPreset(DetectionClassPreset preset, boolean exclude) {
+        settings.set(SettingsStore.DETECTION_PRESET, preset.name());
+        settings.set(SettingsStore.DETECTION_PRESET_EXCLUDE, preset != DetectionClassPreset.ALL && exclude);
+        updateSaveOptionLabels();
     }
 
     private void showRestartDialog(boolean newDarkModeValue) {
@@ -123,21 +235,12 @@ public class SettingsFragment extends Fragment {
                 .setTitle("Restart Required")
                 .setMessage("The app needs to restart to apply " + themeMode + ". Do you want to restart now?")
                 .setPositiveButton("Yes", (dialog, which) -> {
-                    // Save the new preference FIRST
-                    savePreference("dark_mode", newDarkModeValue);
-
-                    // Force commit to ensure it's saved immediately
-                    SharedPreferences.Editor editor = sharedPreferences.edit();
-                    editor.putBoolean("dark_mode", newDarkModeValue);
-                    editor.commit(); // Use commit() instead of apply() for immediate write
-
-                    // Log for debugging
+                    // Save the new preference FIRST, and restart only once it is on disk
+                    settings.set(SettingsStore.DARK_MODE, newDarkModeValue);
                     android.util.Log.d("SettingsFragment", "Saved dark mode preference: " + newDarkModeValue);
-
-                    // Small delay to ensure preference is saved
-                    new android.os.Handler().postDelayed(() -> {
-                        restartApp();
-                    }, 100);
+                    settings.flushNow(() -> {
+                        if (isAdded()) restartApp();
+                    });
                 })
                 .setNegativeButton("No", (dialog, which) -> {
                     // Revert the switch to its previous state
@@ -192,8 +295,8 @@ public class SettingsFragment extends Fragment {
     }
 
     private void performLogout() {
-        // Logout from database
-        userDatabase.logout();
+        // Logout; the session row is cleared in the background
+        SessionManager.getInstance(requireContext()).logout();
 
         Toast.makeText(requireContext(), "Logged out successfully", Toast.LENGTH_SHORT).show();
 
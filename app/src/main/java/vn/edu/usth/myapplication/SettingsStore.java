@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: SettingsStore.java
+ * Last Modified: 18/10/2026 13:15
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Typed, in-memory view of the "PhotoMagicPrefs" settings. The file is read once on a
+// background thread; reads after that are map lookups. Writes update memory and observers
+// immediately and reach disk in one batched commit shortly after.
+public class SettingsStore {
+
+    private static final String TAG = "SettingsStore";
+    private static final String PREFS_NAME = "PhotoMagicPrefs";
+    // Writes arriving within this window share one commit
+    private static final long WRITE_BATCH_MS = 300;
+
+    public static final Key<Boolean> FLASH_MODE = new Key<>("flash_mode", false);
+    public static final Key<Boolean> DARK_MODE = new Key<>("dark_mode", false);
+    // Run the detector on the camera preview and draw boxes over it
+    public static final Key<Boolean> LIVE_DETECTION = new Key<>("live_detection", false);
+    // Fire the shutter by itself once a detection has held steady (see AutoCaptureTrigger)
+    public static final Key<Boolean> AUTO_CAPTURE = new Key<>("auto_capture", false);
+    // Also search large photos tile by tile for small objects (see TiledDetector)
+    public static final Key<Boolean> TILED_DETECTION = new Key<>("tiled_detection", false);
+    // Whether saved photos get the detection boxes drawn into their pixels
+    public static final Key<Boolean> BURN_ANNOTATIONS = new Key<>("burn_annotations", true);
+    // Encode format used by the save queue, as an EncodeFormat name
+    public static final Key<String> SAVE_FORMAT = new Key<>("save_format", PhotoSaveQueue.EncodeFormat.JPEG.name());
+    // Encoder quality (0-100) used by the save queue
+    public static final Key<Integer> SAVE_QUALITY = new Key<>("save_quality", 95);
+    // Detector class preset, as a DetectionClassPreset name
+    public static final Key<String> DETECTION_PRESET = new Key<>("detection_preset", DetectionClassPreset.ALL.name());
+    // true: the preset's classes are ignored instead of being the only ones detected
+    public static final Key<Boolean> DETECTION_PRESET_EXCLUDE = new Key<>("detection_preset_exclude", false);
+
+    private static volatile SettingsStore instance;
+
+    private final SharedPreferences prefs;
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(
+            r -> new Thread(r, "settings-io"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<Registration<?>> registrations = new CopyOnWriteArrayList<>();
+
+    // Values set since the last commit; guarded by itself
+    private final Map<String, Object> dirty = new HashMap<>();
+    private boolean flushScheduled = false;
+
+    public static final class Key<T> {
+        final String name;
+        final T defaultValue;
+
+        Key(String name, T defaultValue) {
+            this.name = name;
+            this.defaultValue = defaultValue;
+        }
+    }
+
+    public interface Observer<T> {
+        void onChanged(T value);
+    }
+
+    private SettingsStore(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        writer.execute(() -> {
+            long start = SystemClock.elapsedRealtime();
+            for (Map.Entry<String, ?> e : prefs.getAll().entrySet()) {
+                if (e.getValue() != null) values.put(e.getKey(), e.getValue());
+            }
+            loaded.countDown();
+            PerfMetrics.record("settings.load_ms", SystemClock.elapsedRealtime() - start);
+        });
+    }
+
+    public static SettingsStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SettingsStore.class) {
+                if (instance == null) {
+                    instance = new SettingsStore(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Served from memory; only the very first read can wait for the initial load
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key<T> key) {
+        awaitLoaded();
+        Object value = values.get(key.name);
+        if (value == null || !key.defaultValue.getClass().isInstance(value)) {
+            return key.defaultValue;
+        }
+        return (T) value;
+    }
+
+    public <T> void set(Key<T> key, @NonNull T value) {
+        Objects.requireNonNull(value, key.name);
+        awaitLoaded();
+        Object previous = values.put(key.name, value);
+        if (Objects.equals(previous, value)) return;
+
+        synchronized (dirty) {
+            dirty.put(key.name, value);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                writer.schedule(this::flush, WRITE_BATCH_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+        mainHandler.post(() -> {
+            for (Registration<?> registration : registrations) {
+                if (registration.key == key) registration.dispatch();
+            }
+        });
+    }
+
+    // Writes pending changes now and then runs onWritten on the main thread, for callers
+    // that are about to kill the process (e.g. the theme restart)
+    public void flushNow(Runnable onWritten) {
+        writer.execute(() -> {
+            flush();
+            if (onWritten != null) mainHandler.post(onWritten);
+        });
+    }
+
+    /**
+     * Calls observer with the current value while owner is at least STARTED, and again on the
+     * main thread whenever the value changes. Changes made while the owner is stopped are
+     * collapsed into one call with the latest value when it starts again. Main thread only.
+     */
+    public <T> void observe(@NonNull LifecycleOwner owner, @NonNull Key<T> key, @NonNull Observer<T> observer) {
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+        Registration<T> registration = new Registration<>(owner, key, observer);
+        registrations.add(registration);
+        owner.getLifecycle().addObserver(registration);
+    }
+
+    private void flush() {
+        Map<String, Object> batch;
+        synchronized (dirty) {
+            flushScheduled = false;
+            if (dirty.isEmpty()) return;
+            batch = new HashMap<>(dirty);
+            dirty.clear();
+        }
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, Object> e : batch.entrySet()) {
+            Object value = e.getValue();
+            if (value instanceof Boolean) {
+                editor.putBoolean(e.getKey(), (Boolean) value);
+            } else if (value instanceof Integer) {
+                editor.putInt(e.getKey(), (Integer) value);
+            } else if (value instanceof Long) {
+                editor.putLong(e.getKey(), (Long) value);
+            } else if (value instanceof Float) {
+                editor.putFloat(e.getKey(), (Float) value);
+            } else {
+                editor.putString(e.getKey(), value.toString());
+            }
+        }
+        // Already on the settings thread, so a synchronous commit costs the UI nothing
+        if (!editor.commit()) {
+            Log.w(TAG, "Failed to write " + batch.size() + " settings");
+        }
+        PerfMetrics.record("settings.batch_size", batch.size());
+    }
+
+    private void awaitLoaded() {
+        if (loaded.getCount() == 0) return;
+        long start = SystemClock.elapsedRealtime();
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PerfMetrics.record("settings.load_wait_ms", SystemClock.elapsedRealtime() - start);
+    }
+
+    private final class Registration<T> implements LifecycleEventObserver {
+        final LifecycleOwner owner;
+        final Key<T> key;
+        final Observer<T> observer;
+        private boolean delivered = false;
+        private T lastValue;
+
+        Registration(LifecycleOwner owner, Key<T> key, Observer<T> observer) {
+            this.owner = owner;
+            this.key = key;
+            this.observer = observer;
+        }
+
+        // Main thread only
+        void dispatch() {
+            if (!owner.getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+                return;
+            }
+            T value = get(key);
+            if (delivered && Objects.equals(value, lastValue)) return;
+            delivered = true;
+            lastValue = value;
+            observer.onChanged(value);
+        }
+
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                registrations.remove(this);
+                source.getLifecycle().removeObserver(this);
+                return;
+            }
+            dispatch();
+        }
+    }
+}
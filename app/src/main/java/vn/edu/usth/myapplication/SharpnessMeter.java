@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: SharpnessMeter.java
+ * Last Modified: 18/10/2026 17:40
+ */
+
+package vn.edu.usth.myapplication;
+
+import java.nio.ByteBuffer;
+
+// Focus/motion-blur score for analysis frames: the variance of a 4-neighbour Laplacian over
+// a downsampled Y plane (about 120 rows), so a frame costs well under a millisecond. Blurred
+// frames have weak edges and a low variance. The meter remembers the last few scores so a
+// caller can tell whether a frame is the sharpest of the recent ones.
+// Not thread-safe; the live analyzer uses it from one thread.
+public class SharpnessMeter {
+
+    // Rows/columns sampled along the shorter side
+    private static final int TARGET_SAMPLES = 120;
+    // A frame within this fraction of the recent best still counts as the sharpest
+    private static final double SHARPEST_TOLERANCE = 0.9;
+
+    private final double[] recent;
+    private int count = 0;
+    private int next = 0;
+
+    public SharpnessMeter(int window) {
+        recent = new double[window];
+    }
+
+    // Scores a Y plane and adds it to the recent window
+    public double measure(ByteBuffer luma, int rowStride, int pixelStride, int width, int height) {
+        double score = laplacianVariance(luma, rowStride, pixelStride, width, height);
+        recent[next] = score;
+        next = (next + 1) % recent.length;
+        count = Math.min(count + 1, recent.length);
+        return score;
+    }
+
+    // Whether the window has filled up since the meter was created
+    public boolean hasFullWindow() {
+        return count == recent.length;
+    }
+
+    // Whether score is (nearly) the best of the recent window, including itself
+    public boolean isSharpestRecent(double score) {
+        double best = 0;
+        for (int i = 0; i < count; i++) best = Math.max(best, recent[i]);
+        return score >= best * SHARPEST_TOLERANCE;
+    }
+
+    static double laplacianVariance(ByteBuffer luma, int rowStride, int pixelStride, int width, int height) {
+        int step = Math.max(1, Math.min(width, height) / TARGET_SAMPLES);
+        double sum = 0;
+        double sumSquares = 0;
+        int n = 0;
+        for (int y = step; y < height - step; y += step) {
+            int row = y * rowStride;
+            int up = (y - step) * rowStride;
+            int down = (y + step) * rowStride;
+            for (int x = step; x < width - step; x += step) {
+                int c = luma.get(row + x * pixelStride) & 0xFF;
+                int l = luma.get(row + (x - step) * pixelStride) & 0xFF;
+                int r = luma.get(row + (x + step) * pixelStride) & 0xFF;
+                int u = luma.get(up + x * pixelStride) & 0xFF;
+                int d = luma.get(down + x * pixelStride) & 0xFF;
+                int laplacian = 4 * c - l - r - u - d;
+                sum += laplacian;
+                sumSquares += (double) laplacian * laplacian;
+                n++;
+            }
+        }
+        if (n == 0) return 0;
+        double mean = sum / n;
+        return sumSquares / n - mean * mean;
+    }
+}
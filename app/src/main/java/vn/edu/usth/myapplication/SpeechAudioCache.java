@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: SpeechAudioCache.java
+ * Last Modified: 18/10/2026 14:25
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.util.Log;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+// Synthesized speech clips in filesDir/tts_cache, keyed by (engine, language, rate, text).
+// A cached clip plays straight from disk instead of being synthesized again, which matters
+// most at 0.5x. The directory is kept under a byte budget, least recently played first.
+// Not thread-safe; SpeechService only uses it on its speech thread.
+class SpeechAudioCache {
+
+    private static final String TAG = "SpeechAudioCache";
+    private static final String DIR = "tts_cache";
+    private static final String SUFFIX = ".wav";
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final long BYTE_BUDGET = 20L * 1024 * 1024;
+
+    private final File dir;
+    // Keys being synthesized right now, so the same clip isn't queued twice
+    private final Set<String> pending = new HashSet<>();
+    private MediaPlayer player;
+
+    SpeechAudioCache(Context context) {
+        dir = new File(context.getApplicationContext().getFilesDir(), DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Cannot create " + dir);
+        }
+        // Partial files are synthesis runs a previous process never finished
+        File[] partials = dir.listFiles((d, name) -> name.endsWith(PARTIAL_SUFFIX));
+        if (partials != null) {
+            for (File f : partials) f.delete();
+        }
+    }
+
+    static String key(String engine, String languageCode, float rate, String text) {
+        String raw = engine + "\n" + languageCode + "\n" + String.format(Locale.US, "%.2f", rate) + "\n" + text;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(raw.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) sb.append(String.format(Locale.US, "%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is always present on Android; fall back to something still stable
+            return Integer.toHexString(raw.hashCode()) + "_" + raw.length();
+        }
+    }
+
+    // The cached clip for key, or null
+    File lookup(String key) {
+        File clip = new File(dir, key + SUFFIX);
+        return clip.isFile() && clip.length() > 0 ? clip : null;
+    }
+
+    // Where the engine should write a clip; null if it is cached or already being made
+    File beginSynthesis(String key) {
+        if (lookup(key) != null || !pending.add(key)) return null;
+        return new File(dir, key + PARTIAL_SUFFIX);
+    }
+
+    void finishSynthesis(String key, boolean success) {
+        pending.remove(key);
+        File partial = new File(dir, key + PARTIAL_SUFFIX);
+        if (success && partial.length() > 0 && partial.renameTo(new File(dir, key + SUFFIX))) {
+            trim();
+        } else {
+            partial.delete();
+        }
+    }
+
+    boolean hasPendingSynthesis() {
+        return !pending.isEmpty();
+    }
+
+    // The engine went away with work queued; drop the partial files
+    void abandonPendingSynthesis() {
+        for (String key : new HashSet<>(pending)) {
+            finishSynthesis(key, false);
+        }
+    }
+
+    boolean play(File clip, Runnable onFinished) {
+        stop();
+        MediaPlayer mp = new MediaPlayer();
+        try {
+            mp.setAudioAttributes(new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_ASSISTANT)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                    .build());
+            mp.setDataSource(clip.getAbsolutePath());
+            mp.prepare();
+        } catch (Exception e) {
+            Log.w(TAG, "Unplayable clip " + clip.getName() + ", dropping it", e);
+            mp.release();
+            clip.delete();
+            return false;
+        }
+        mp.setOnCompletionListener(done -> {
+            if (player == done) player = null;
+            done.release();
+            if (onFinished != null) onFinished.run();
+        });
+        player = mp;
+        mp.start();
+        // Recently played clips survive eviction longest
+        clip.setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    boolean isPlaying() {
+        return player != null;
+    }
+
+    void stop() {
+        if (player != null) {
+            try {
+                player.stop();
+            } catch (IllegalStateException ignored) {
+            }
+            player.release();
+            player = null;
+        }
+    }
+
+    private void trim() {
+        File[] clips = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (clips == null) return;
+        long reclaimed = CaptureCacheManager.evictLeastRecentlyUsed(Arrays.asList(clips), BYTE_BUDGET);
+        if (reclaimed > 0) {
+            PerfMetrics.record("tts.cache_reclaimed_bytes", reclaimed);
+        }
+    }
+}
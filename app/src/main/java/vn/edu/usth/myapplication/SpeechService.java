@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: SpeechService.java
+ * Last Modified: 18/10/2026 13:50
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// One TextToSpeech engine for the whole app. It binds once and is shared across screens,
+// and it shuts down after a few idle minutes; the next request binds it again. All engine calls
+// run on a dedicated "speech" thread so the blocking binder calls (setLanguage,
+// isLanguageAvailable) never touch the UI. Which of TranslationFragment's languages the
+// engine can speak is probed once and cached per engine, so the UI can ask without blocking.
+// Spoken phrases are also kept as audio clips (SpeechAudioCache) and replayed from disk.
+public class SpeechService {
+
+    private static final String TAG = "SpeechService";
+    private static final String PREFS_NAME = "SpeechLanguages";
+    private static final String KEY_ENGINE = "engine";
+    private static final String KEY_SPEAKABLE = "speakable";
+    private static final long IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+    // Utterance ids of background synthesis into SpeechAudioCache
+    private static final String SYNTH_PREFIX = "synth:";
+
+    private static volatile SpeechService instance;
+
+    private final Context appContext;
+    private final Handler speechHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Runnable> pendingUntilReady = new ArrayList<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Runnable idleShutdown = this::shutdownIfIdle;
+
+    // Speech thread only
+    private TextToSpeech tts;
+    private boolean ready = false;
+    private Locale currentLocale;
+    private float currentRate = -1f;
+    private int speaking = 0;
+    private SpeechAudioCache audioCache;
+
+    private volatile boolean available = true;
+    // Engine the cached clips and probe belong to; known before the engine binds
+    private volatile String engineName;
+    // null until the probe (or the cached probe) is known
+    private volatile Set<String> speakableCodes;
+
+    private SpeechService(Context context) {
+        appContext = context.getApplicationContext();
+        HandlerThread thread = new HandlerThread("speech");
+        thread.start();
+        speechHandler = new Handler(thread.getLooper());
+        speakableCodes = loadCachedProbe();
+        engineName = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getString(KEY_ENGINE, null);
+    }
+
+    public static SpeechService getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SpeechService.class) {
+                if (instance == null) {
+                    instance = new SpeechService(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public interface Listener {
+        // Main thread; called once the speakable languages are known (or re-probed)
+        void onLanguagesChanged();
+    }
+
+    public interface SpeakCallback {
+        // Main thread
+        void onResult(boolean started);
+    }
+
+    // Binds the engine and probes languages in the background
+    public void warmUp() {
+        warmUp(null);
+    }
+
+    // done (may be null) runs once the probe has finished or the engine failed to start
+    public void warmUp(Runnable done) {
+        withEngine(() -> {
+            try {
+                if (speakableCodes == null) {
+                    probeLanguages();
+                } else {
+                    checkEngineUnchanged();
+                }
+            } finally {
+                if (done != null) done.run();
+            }
+        }, done == null ? null : started -> done.run());
+    }
+
+    // False once the engine failed to initialise
+    public boolean isAvailable() {
+        return available;
+    }
+
+    // TRUE/FALSE once probed, null while unknown. Never blocks.
+    public Boolean isSpeakable(String code) {
+        Set<String> codes = speakableCodes;
+        return codes == null ? null : codes.contains(code);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Plays a cached clip when there is one (no engine needed); otherwise speaks live and
+    // synthesizes the clip in the background for next time
+    public void speak(String text, String languageCode, float rate, SpeakCallback callback) {
+        speechHandler.post(() -> {
+            speechHandler.removeCallbacks(idleShutdown);
+            File clip = engineName == null ? null
+                    : audioCache().lookup(SpeechAudioCache.key(engineName, languageCode, rate, text));
+            if (clip != null) {
+                if (tts != null) tts.stop();
+                if (audioCache().play(clip, this::scheduleIdleShutdown)) {
+                    PerfMetrics.record("tts.cache_hit", 1);
+                    deliver(callback, true);
+                    return;
+                }
+            }
+            PerfMetrics.record("tts.cache_hit", 0);
+            withEngine(() -> {
+                boolean started = false;
+                try {
+                    audioCache().stop();
+                    applyLanguage(languageCode);
+                    applyRate(rate);
+                    started = tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, "TTS") == TextToSpeech.SUCCESS;
+                } catch (Exception e) {
+                    Log.e(TAG, "speak failed", e);
+                }
+                deliver(callback, started);
+                if (started) queueSynthesis(text, languageCode, rate);
+            }, callback);
+        });
+    }
+
+    // Synthesizes text at each rate into the audio cache so a later speak() starts instantly
+    public void presynthesize(String text, String languageCode, float... rates) {
+        if (text == null || text.trim().isEmpty()) return;
+        withEngine(() -> {
+            for (float rate : rates) {
+                queueSynthesis(text, languageCode, rate);
+            }
+        });
+    }
+
+    public void stop() {
+        speechHandler.post(() -> {
+            if (tts != null) tts.stop();
+            if (audioCache != null) audioCache.stop();
+            speaking = 0;
+            scheduleIdleShutdown();
+        });
+    }
+
+    // Runs action on the speech thread once the engine is bound; binds it if needed
+    private void withEngine(Runnable action) {
+        withEngine(action, null);
+    }
+
+    private void withEngine(Runnable action, SpeakCallback onUnavailable) {
+        speechHandler.post(() -> {
+            speechHandler.removeCallbacks(idleShutdown);
+            if (ready) {
+                action.run();
+                scheduleIdleShutdown();
+                return;
+            }
+            pendingUntilReady.add(() -> {
+                if (ready) {
+                    action.run();
+                } else {
+                    deliver(onUnavailable, false);
+                }
+            });
+            if (tts == null) bind();
+        });
+    }
+
+    private void bind() {
+        long start = SystemClock.elapsedRealtime();
+        tts = new TextToSpeech(appContext, status -> speechHandler.post(() -> {
+            ready = status == TextToSpeech.SUCCESS;
+            available = ready;
+            PerfMetrics.record("tts.bind_ms", SystemClock.elapsedRealtime() - start);
+            if (ready) {
+                tts.setOnUtteranceProgressListener(progressListener);
+                engineName = String.valueOf(tts.getDefaultEngine());
+            } else {
+                Log.w(TAG, "TextToSpeech init failed: " + status);
+                releaseEngine();
+            }
+            List<Runnable> actions = new ArrayList<>(pendingUntilReady);
+            pendingUntilReady.clear();
+            for (Runnable r : actions) r.run();
+            scheduleIdleShutdown();
+        }));
+    }
+
+    // Speech thread, engine ready. Synthesis requests queue behind any current speech; the
+    // language and rate are captured when the request is queued.
+    private void queueSynthesis(String text, String languageCode, float rate) {
+        String key = SpeechAudioCache.key(engineName, languageCode, rate, text);
+        File out = audioCache().beginSynthesis(key);
+        if (out == null) return;
+        try {
+            applyLanguage(languageCode);
+            applyRate(rate);
+            if (tts.synthesizeToFile(text, null, out, SYNTH_PREFIX + key) != TextToSpeech.SUCCESS) {
+                audioCache().finishSynthesis(key, false);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "synthesizeToFile failed", e);
+            audioCache().finishSynthesis(key, false);
+        }
+    }
+
+    private SpeechAudioCache audioCache() {
+        if (audioCache == null) audioCache = new SpeechAudioCache(appContext);
+        return audioCache;
+    }
+
+    private void applyRate(float rate) {
+        if (rate != currentRate) {
+            tts.setSpeechRate(rate);
+            currentRate = rate;
+        }
+    }
+
+    private void applyLanguage(String code) {
+        Locale locale = Locale.forLanguageTag(code);
+        if (locale.equals(currentLocale)) return;
+        int r = tts.setLanguage(locale);
+        if (r == TextToSpeech.LANG_MISSING_DATA || r == TextToSpeech.LANG_NOT_SUPPORTED) {
+            tts.setLanguage(Locale.US); // Fallback to English
+        }
+        currentLocale = locale;
+    }
+
+    private void probeLanguages() {
+        long start = SystemClock.elapsedRealtime();
+        Set<String> codes = new HashSet<>();
+        for (String[] row : TranslationFragment.LANGS) {
+            try {
+                if (tts.isLanguageAvailable(Locale.forLanguageTag(row[1])) >= TextToSpeech.LANG_AVAILABLE) {
+                    codes.add(row[1]);
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Probe failed for " + row[1], e);
+            }
+        }
+        speakableCodes = codes;
+        appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putString(KEY_ENGINE, String.valueOf(tts.getDefaultEngine()))
+                .putStringSet(KEY_SPEAKABLE, codes)
+                .apply();
+        PerfMetrics.record("tts.probe_ms", SystemClock.elapsedRealtime() - start);
+        PerfMetrics.event("tts", codes.size() + "/" + TranslationFragment.LANGS.length + " languages speakable");
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) listener.onLanguagesChanged();
+        });
+    }
+
+    // The cached probe is only trusted for the engine it was made with; a new default
+    // engine gets re-probed when the engine binds
+    private Set<String> loadCachedProbe() {
+        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        Set<String> codes = prefs.getStringSet(KEY_SPEAKABLE, null);
+        return codes == null ? null : new HashSet<>(codes);
+    }
+
+    private void checkEngineUnchanged() {
+        String probedWith = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getString(KEY_ENGINE, null);
+        if (probedWith != null && !probedWith.equals(String.valueOf(tts.getDefaultEngine()))) {
+            probeLanguages();
+        }
+    }
+
+    private void scheduleIdleShutdown() {
+        speechHandler.removeCallbacks(idleShutdown);
+        speechHandler.postDelayed(idleShutdown, IDLE_TIMEOUT_MS);
+    }
+
+    private void shutdownIfIdle() {
+        if (tts == null) return;
+        if (speaking > 0 || (audioCache != null
+                && (audioCache.hasPendingSynthesis() || audioCache.isPlaying()))) {
+            scheduleIdleShutdown();
+            return;
+        }
+        Log.d(TAG, "Idle, shutting down engine");
+        releaseEngine();
+    }
+
+    private void releaseEngine() {
+        if (tts != null) {
+            try {
+                tts.stop();
+                tts.shutdown();
+            } catch (Exception ignored) {
+            }
+        }
+        tts = null;
+        ready = false;
+        if (audioCache != null) audioCache.abandonPendingSynthesis();
+        currentLocale = null;
+        currentRate = -1f;
+        speaking = 0;
+    }
+
+    private void deliver(SpeakCallback callback, boolean started) {
+        if (callback != null) mainHandler.post(() -> callback.onResult(started));
+    }
+
+    private final UtteranceProgressListener progressListener = new UtteranceProgressListener() {
+        @Override
+        public void onStart(String utteranceId) {
+            if (isSynthesis(utteranceId)) return;
+            speechHandler.post(() -> speaking++);
+        }
+
+        @Override
+        public void onDone(String utteranceId) {
+            finished(utteranceId, true);
+        }
+
+        @Override
+        public void onError(String utteranceId) {
+            finished(utteranceId, false);
+        }
+
+        // Utterances cut off by QUEUE_FLUSH or stop() end here instead of onDone
+        @Override
+        public void onStop(String utteranceId, boolean interrupted) {
+            finished(utteranceId, false);
+        }
+
+        private void finished(String utteranceId, boolean success) {
+            speechHandler.post(() -> {
+                if (isSynthesis(utteranceId)) {
+                    audioCache().finishSynthesis(utteranceId.substring(SYNTH_PREFIX.length()), success);
+                } else {
+                    speaking = Math.max(0, speaking - 1);
+                }
+            });
+        }
+
+        private boolean isSynthesis(String utteranceId) {
+            return utteranceId != null && utteranceId.startsWith(SYNTH_PREFIX);
+        }
+    };
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: SystemDeviceConditions.java
+ * Last Modified: 18/10/2026 20:50
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+
+// InferenceScheduler's view of the real device, read from PowerManager. Thermal status
+// exists from Android 10; older devices always report THERMAL_NONE and rely on the
+// latency signal alone.
+public class SystemDeviceConditions implements InferenceScheduler.DeviceConditions {
+
+    private final PowerManager powerManager;
+
+    public SystemDeviceConditions(Context context) {
+        powerManager = (PowerManager) context.getApplicationContext().getSystemService(Context.POWER_SERVICE);
+    }
+
+    @Override
+    public int getThermalStatus() {
+        if (powerManager == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return InferenceScheduler.THERMAL_NONE;
+        }
+        return powerManager.getCurrentThermalStatus();
+    }
+
+    @Override
+    public boolean isPowerSaveMode() {
+        return powerManager != null && powerManager.isPowerSaveMode();
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: TiledDetector.java
+ * Last Modified: 18/10/2026 22:10
+ */
+
+package vn.edu.usth.myapplication;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Small-object pass for large photos. A 4000x3000 capture squeezed into the model input
+// shrinks a pen to a few pixels, so this cuts the image into overlapping tiles at native
+// scale (one model input per tile) and runs them on a small pool of interpreters in
+// parallel. The tiles only add candidates; the caller still runs the whole image once for
+// large objects (which tiles would cut up) and merges both with one global NMS (merge()).
+//
+// A time budget bounds the pass: the tiling is coarsened (tiles covering 2x, 4x... the
+// model input, downscaled) until the estimated time fits, and tiles that would still start
+// after the deadline are skipped.
+public class TiledDetector {
+
+    private static final String TAG = "TiledDetector";
+    public static final long DEFAULT_BUDGET_MS = 1500;
+    // Share of a tile that overlaps its neighbour, so objects on a seam are whole in one tile
+    private static final float OVERLAP = 0.2f;
+    // Boxes kept per tile before the global merge
+    private static final int TILE_MAX_RESULTS = 20;
+    private static final int MAX_TILE_LEVEL = 3;
+    // Interpreter threads per pooled detector; the pool itself provides the parallelism
+    private static final int THREADS_PER_TILE = 2;
+    // Used until there are measured tile times
+    private static final double DEFAULT_TILE_MS = 250;
+    private static final int MIN_TIMINGS = 3;
+
+    private static volatile TiledDetector instance;
+
+    private final Context appContext;
+    private final int poolSize;
+    private final ExecutorService executor;
+    // Guarded by this; replaced when the still model changes
+    private Pool pool;
+
+    public static final class Outcome {
+        // Boxes from all tiles in image pixels, NMS'd per tile only
+        public final List<YOLOv5Classifier.Result> candidates;
+        public final int tiles;
+        public final int skipped;
+        public final long elapsedMs;
+
+        Outcome(List<YOLOv5Classifier.Result> candidates, int tiles, int skipped, long elapsedMs) {
+            this.candidates = candidates;
+            this.tiles = tiles;
+            this.skipped = skipped;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    // Interpreters of one model variant. A pool retired by a model change stays usable for
+    // the detect() calls already running on it and is closed once the last one is over and
+    // every detector is back in the queue.
+    private static final class Pool {
+        final ModelVariant variant;
+        final BlockingQueue<YOLOv5Classifier> detectors;
+        final int size;
+        // Guarded by the TiledDetector
+        int users = 0;
+        boolean closed = false;
+        volatile boolean retired = false;
+
+        Pool(ModelVariant variant, BlockingQueue<YOLOv5Classifier> detectors) {
+            this.variant = variant;
+            this.detectors = detectors;
+            this.size = detectors.size();
+        }
+    }
+
+    private TiledDetector(Context context) {
+        appContext = context.getApplicationContext();
+        poolSize = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() / 2));
+        executor = Executors.newFixedThreadPool(poolSize);
+    }
+
+    public static TiledDetector getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TiledDetector.class) {
+                if (instance == null) {
+                    instance = new TiledDetector(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Whether tiling can find anything the whole-image pass can't
+    public static boolean isWorthTiling(Bitmap image, YOLOv5Classifier detector) {
+        return image.getWidth() > detector.getInputWidth() * 1.5f
+                || image.getHeight() > detector.getInputHeight() * 1.5f;
+    }
+
+    /**
+     * Runs the tiles of image and returns their candidates, scoring >= minConfidence
+     * and (classMask non-null) only enabled classes. Blocks; call it off the main thread.
+     */
+    public Outcome detect(Bitmap image, float minConfidence, boolean[] classMask, long budgetMs)
+            throws IOException, InterruptedException {
+        long start = SystemClock.elapsedRealtime();
+        long deadline = start + budgetMs;
+        Pool pool = acquirePool();
+        try {
+            return detect(pool, image, minConfidence, classMask, budgetMs, start, deadline);
+        } finally {
+            releasePool(pool);
+        }
+    }
+
+    private Outcome detect(Pool pool, Bitmap image, float minConfidence, boolean[] classMask, long budgetMs,
+                           long start, long deadline) throws IOException, InterruptedException {
+        BlockingQueue<YOLOv5Classifier> detectors = pool.detectors;
+        YOLOv5Classifier any = detectors.peek();
+        int inputSide = any != null ? Math.min(any.getInputWidth(), any.getInputHeight()) : 640;
+
+        List<Rect> tiles = plan(image.getWidth(), image.getHeight(), inputSide, budgetMs);
+        List<YOLOv5Classifier.Result> candidates = new ArrayList<>();
+        if (tiles.isEmpty()) return new Outcome(candidates, 0, 0, 0);
+
+        AtomicInteger skipped = new AtomicInteger();
+        List<Future<List<YOLOv5Classifier.Result>>> futures = new ArrayList<>();
+        for (Rect tile : tiles) {
+            Callable<List<YOLOv5Classifier.Result>> task = () -> {
+                if (SystemClock.elapsedRealtime() >= deadline) {
+                    skipped.incrementAndGet();
+                    return new ArrayList<>();
+                }
+                YOLOv5Classifier detector = detectors.take();
+                try {
+                    return detectTile(detector, image, tile, minConfidence, classMask);
+                } finally {
+                    // Never blocks (the pool has room for every detector), so a cancelled
+                    // task can't lose its interpreter to the interrupt
+                    detectors.offer(detector);
+                    // A task cancelled by a failed detect() can finish after it returned
+                    if (pool.retired) closeIfIdle(pool);
+                }
+            };
+            futures.add(executor.submit(task));
+        }
+        try {
+            for (Future<List<YOLOv5Classifier.Result>> future : futures) {
+                candidates.addAll(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Tile detection failed", e.getCause());
+        } finally {
+            for (Future<?> future : futures) future.cancel(true);
+        }
+
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        double megapixels = image.getWidth() * (double) image.getHeight() / 1e6;
+        PerfMetrics.record("tiled.ms", elapsed);
+        PerfMetrics.record("tiled.ms_per_mp", elapsed / megapixels);
+        if (skipped.get() > 0) {
+            PerfMetrics.event("tiled", "budget hit, skipped " + skipped.get() + " of " + tiles.size() + " tiles");
+        }
+        return new Outcome(candidates, tiles.size(), skipped.get(), elapsed);
+    }
+
+    private static List<YOLOv5Classifier.Result> detectTile(YOLOv5Classifier detector, Bitmap image, Rect tile,
+                                                           float minConfidence, boolean[] classMask) {
+        long start = SystemClock.elapsedRealtime();
+        Bitmap crop = Bitmap.createBitmap(image, tile.left, tile.top, tile.width(), tile.height());
+        YOLOv5Classifier.Options options = new YOLOv5Classifier.Options(minConfidence, TILE_MAX_RESULTS);
+        options.classMask = classMask;
+        List<YOLOv5Classifier.Result> found = detector.detect(crop, options);
+        if (crop != image) crop.recycle();
+
+        // Back into image pixels
+        List<YOLOv5Classifier.Result> shifted = new ArrayList<>(found.size());
+        for (YOLOv5Classifier.Result r : found) {
+            shifted.add(new YOLOv5Classifier.Result(r.label, r.conf,
+                    r.left + tile.left, r.top + tile.top, r.right + tile.left, r.bottom + tile.top));
+        }
+        PerfMetrics.record("tiled.tile_ms", SystemClock.elapsedRealtime() - start);
+        return shifted;
+    }
+
+    // Finest tiling whose estimated time fits the budget; empty if even the coarsest level
+    // is no finer than the whole-image pass
+    private List<Rect> plan(int width, int height, int inputSide, long budgetMs) {
+        double tileMs = estimatedTileMs();
+        for (int level = 0; level <= MAX_TILE_LEVEL; level++) {
+            int side = inputSide << level;
+            if (side * 1.5f >= Math.max(width, height)) break;
+            List<Rect> tiles = tiles(width, height, side);
+            double estimate = Math.ceil(tiles.size() / (double) poolSize) * tileMs;
+            if (estimate <= budgetMs) {
+                if (level > 0) {
+                    PerfMetrics.event("tiled", "coarser tiling x" + (1 << level) + ", "
+                            + tiles.size() + " tiles, est " + Math.round(estimate) + " ms");
+                }
+                return tiles;
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    private static double estimatedTileMs() {
+        PerfMetrics.Stat measured = PerfMetrics.get("tiled.tile_ms");
+        if (measured != null && measured.getCount() >= MIN_TIMINGS) return measured.getMean();
+        return DEFAULT_TILE_MS;
+    }
+
+    // Square tiles of the given side covering the image, overlapping by about OVERLAP
+    static List<Rect> tiles(int width, int height, int side) {
+        int[] xs = positions(width, side);
+        int[] ys = positions(height, side);
+        List<Rect> tiles = new ArrayList<>(xs.length * ys.length);
+        for (int y : ys) {
+            for (int x : xs) {
+                tiles.add(new Rect(x, y, Math.min(width, x + side), Math.min(height, y + side)));
+            }
+        }
+        return tiles;
+    }
+
+    // Evenly spread tile starts along one axis; the last tile ends at the edge
+    private static int[] positions(int length, int side) {
+        if (length <= side) return new int[]{0};
+        int overlap = Math.round(side * OVERLAP);
+        int count = (int) Math.ceil((length - overlap) / (double) (side - overlap));
+        int[] starts = new int[count];
+        float step = (length - side) / (float) (count - 1);
+        for (int i = 0; i < count; i++) starts[i] = Math.round(i * step);
+        return starts;
+    }
+
+    /**
+     * Combines the whole-image results with tile candidates under options (threshold, class
+     * mask, NMS, max results). labels maps the class mask to label names.
+     */
+    public static List<YOLOv5Classifier.Result> merge(List<YOLOv5Classifier.Result> whole,
+                                                      List<YOLOv5Classifier.Result> tileCandidates,
+                                                      YOLOv5Classifier.Options options, List<String> labels) {
+        List<YOLOv5Classifier.Result> all = new ArrayList<>(whole);
+        for (YOLOv5Classifier.Result r : tileCandidates) {
+            if (r.conf < options.threshold) continue;
+            if (options.classMask != null) {
+                int index = labels.indexOf(r.label);
+                if (index < 0 || index >= options.classMask.length || !options.classMask[index]) continue;
+            }
+            all.add(r);
+        }
+        return YOLOv5Classifier.nonMaxSuppression(all, options.nmsIou, Math.max(1, options.maxResults));
+    }
+
+    // Separate detectors so tiles can run in parallel with each other and with the shared
+    // one. Follows the still model: when the provider picks another variant the old pool is
+    // retired and a new one built.
+    private synchronized Pool acquirePool() throws IOException {
+        ModelVariant variant = DetectorProvider.getInstance(appContext).select(DetectionUseCase.STILL);
+        if (pool == null || pool.variant != variant) {
+            Pool built = buildPool(variant);
+            if (pool != null) {
+                Log.d(TAG, "Still model now " + variant + ", retiring the " + pool.variant + " pool");
+                pool.retired = true;
+                closeIfIdle(pool);
+            }
+            pool = built;
+        }
+        pool.users++;
+        return pool;
+    }
+
+    private synchronized void releasePool(Pool released) {
+        released.users--;
+        closeIfIdle(released);
+    }
+
+    // Closes a retired pool once no detect() uses it and no tile task still holds a detector
+    private synchronized void closeIfIdle(Pool candidate) {
+        if (!candidate.retired || candidate.closed || candidate.users > 0) return;
+        if (candidate.detectors.size() < candidate.size) return;
+        candidate.closed = true;
+        for (YOLOv5Classifier detector : candidate.detectors) detector.close();
+        candidate.detectors.clear();
+    }
+
+    private Pool buildPool(ModelVariant variant) throws IOException {
+        BlockingQueue<YOLOv5Classifier> detectors = new ArrayBlockingQueue<>(poolSize);
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                YOLOv5Classifier detector = new YOLOv5Classifier(appContext.getAssets(), variant.assetName);
+                detectors.add(detector);
+                detector.setNumThreads(THREADS_PER_TILE);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Don't leak the interpreters that did load
+            for (YOLOv5Classifier detector : detectors) detector.close();
+            throw e;
+        }
+        Log.d(TAG, "Interpreter pool: " + poolSize + " x " + variant.assetName);
+        return new Pool(variant, detectors);
+    }
+}
@@ -12,7 +12,6 @@ import android.content.Context;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Bundle;
-import android.speech.tts.TextToSpeech;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -34,7 +33,6 @@ import com.google.android.material.textfield.TextInputEditText;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 public class TranslationFragment extends Fragment {
@@ -43,8 +41,8 @@ public class TranslationFragment extends Fragment {
     private static final String ARG_PHOTO_URI = "photo_uri";
     private static final String ARG_USER_INPUT_TEXT = "user_input_text";
 
-    // ===== Languages: name ↔ code (compact)
-    private static final String[][] LANGS = {
+    // ===== Languages: name ↔ code (compact); SpeechService probes these for TTS support
+    static final String[][] LANGS = {
             {"Arabic", "ar"}, {"Chinese (Simplified)", "zh-Hans"}, {"Chinese (Traditional)", "zh-Hant"},
             {"Czech", "cs"}, {"Danish", "da"}, {"Dutch", "nl"}, {"English", "en"}, {"Filipino", "fil"},
             {"Finnish", "fi"}, {"French", "fr"}, {"German", "de"}, {"Greek", "el"}, {"Hebrew", "he"},
@@ -69,8 +67,8 @@ public class TranslationFragment extends Fragment {
     private String initialDetectedObject = null;
 
     private AzureTranslatorService translatorService;
-    private TextToSpeech tts;
-    private boolean ttsReady = false;
+    private SpeechService speechService;
+    private ArrayAdapter<String> languageAdapter;
     private String currentTargetCode = "vi";
     private int speakClickCount = 0;
     private String lastTranslatedText = "";
@@ -98,13 +96,17 @@ public class TranslationFragment extends Fragment {
 
         translatorService = new AzureTranslatorService();
 
-        // Init TTS compact
-        tts = new TextToSpeech(getContext(), st -> {
-            ttsReady = (st == TextToSpeech.SUCCESS);
-            if (ttsReady) setTtsLanguage(currentTargetCode);
-        });
+        // Shared engine, normally already bound during startup
+        speechService = SpeechService.getInstance(requireContext());
+        speechService.addListener(languagesListener);
+        speechService.warmUp();
     }
 
+    // Re-marks the dropdown once the speakable languages are known
+    private final SpeechService.Listener languagesListener = () -> {
+        if (languageAdapter != null) languageAdapter.notifyDataSetChanged();
+    };
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
@@ -176,7 +178,7 @@ public class TranslationFragment extends Fragment {
 
         // Speak button with speed control (1.0x -> 0.5x)
         btnSpeak.setOnClickListener(v -> {
-            if (!ttsReady) {
+            if (!speechService.isAvailable()) {
                 toast("Text-to-Speech unavailable on this device");
                 return;
             }
@@ -188,22 +190,32 @@ public class TranslationFragment extends Fragment {
 
         // Stop button - resets speed counter
         btnStop.setOnClickListener(v -> {
-            if (tts != null) tts.stop();
+            speechService.stop();
             speakClickCount = 0;
             btnSpeak.setText("Speak");
         });
     }
 
     private void setupLanguageDropdown() {
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(
-                requireContext(), android.R.layout.simple_dropdown_item_1line, languageNames);
-        spinnerTargetLanguage.setAdapter(adapter);
+        // Languages the TTS engine can speak get a speaker icon; the lookup is a cached set
+        languageAdapter = new ArrayAdapter<String>(
+                requireContext(), android.R.layout.simple_dropdown_item_1line, languageNames) {
+            @NonNull
+            @Override
+            public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
+                TextView view = (TextView) super.getView(position, convertView, parent);
+                Boolean speakable = speechService.isSpeakable(languageMap.get(getItem(position)));
+                view.setCompoundDrawablesRelativeWithIntrinsicBounds(
+                        0, 0, Boolean.TRUE.equals(speakable) ? R.drawable.ic_volume_up : 0, 0);
+                return view;
+            }
+        };
+        spinnerTargetLanguage.setAdapter(languageAdapter);
         spinnerTargetLanguage.setText("Vietnamese", false);
         currentTargetCode = "vi";
         spinnerTargetLanguage.setOnItemClickListener((p, v, pos, id) -> {
-            String selectedLang = languageNames.get(pos);
+            String selectedLang = languageAdapter.getItem(pos);
             currentTargetCode = languageMap.get(selectedLang);
-            setTtsLanguage(currentTargetCode);
         });
     }
 
@@ -278,8 +290,6 @@ public class TranslationFragment extends Fragment {
             return;
         }
 
-        setTtsLanguage(currentTargetCode); // Update TTS for current target
-
         setLoading(true);
         translatorService.translate(src, currentTargetCode, new AzureTranslatorService.TranslationCallback() {
             @Override
@@ -295,8 +305,11 @@ public class TranslationFragment extends Fragment {
                         lastTranslatedText = out;
                     }
 
+                    // Synthesize both speeds of the Speak button now so playback starts instantly
+                    speechService.presynthesize(out, currentTargetCode, 1.0f, 0.5f);
+
                     // Show TTS buttons if available
-                    if (ttsReady) {
+                    if (speechService.isAvailable()) {
                         btnSpeak.setVisibility(View.VISIBLE);
                         btnStop.setVisibility(View.VISIBLE);
                     }
@@ -328,23 +341,8 @@ public class TranslationFragment extends Fragment {
         }
     }
 
-    private int setTtsLanguage(String code) {
-        if (!ttsReady || tts == null) return TextToSpeech.ERROR;
-        try {
-            // Use BCP-47, e.g. "vi", "en-US", "zh-Hans"
-            Locale loc = Locale.forLanguageTag(code);
-            int r = tts.setLanguage(loc);
-            if (r == TextToSpeech.LANG_MISSING_DATA || r == TextToSpeech.LANG_NOT_SUPPORTED) {
-                r = tts.setLanguage(Locale.US); // Fallback to English
-            }
-            return r;
-        } catch (Exception e) {
-            return TextToSpeech.ERROR;
-        }
-    }
-
     private void speak(float speed) {
-        if (!ttsReady || tts == null) {
+        if (!speechService.isAvailable()) {
             toast("Text-to-Speech unavailable");
             return;
         }
@@ -353,12 +351,11 @@ public class TranslationFragment extends Fragment {
             toast("No text to speak");
             return;
         }
-        tts.stop();
-        tts.setSpeechRate(speed);
-        int result = tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, "TTS");
-        if (result == TextToSpeech.SUCCESS) {
-            toast("Speaking at " + speed + "x speed");
-        }
+        speechService.speak(text, currentTargetCode, speed, started -> {
+            if (started && isAdded()) {
+                toast("Speaking at " + speed + "x speed");
+            }
+        });
     }
 
     private String safeText(TextInputEditText et) {
@@ -375,13 +372,9 @@ public class TranslationFragment extends Fragment {
 
     @Override
     public void onDestroy() {
-        if (tts != null) {
-            try {
-                tts.stop();
-                tts.shutdown();
-            } catch (Exception ignored) {
-            }
-        }
+        // The engine is shared and shuts itself down when idle; just stop our speech
+        speechService.removeListener(languagesListener);
+        speechService.stop();
         super.onDestroy();
     }
 }
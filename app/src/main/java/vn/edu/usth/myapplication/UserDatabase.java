@@ -11,10 +11,25 @@ package vn.edu.usth.myapplication;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// One helper (and so one connection pool) per process. Every public *Async method runs on a
+// dedicated database thread and reports back on the main thread; the blocking methods are
+// kept for code that is already on that thread.
 public class UserDatabase extends SQLiteOpenHelper {
     private static final String TAG = "UserDatabase";
     private static final String DATABASE_NAME = "CamStudyUsers.db";
@@ -32,8 +47,109 @@ public class UserDatabase extends SQLiteOpenHelper {
     private static final String COLUMN_SESSION_EMAIL = "email";
     private static final String COLUMN_IS_LOGGED_IN = "is_logged_in";
 
-    public UserDatabase(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    // Password hashing work factor, calibrated once per install
+    private static final String PREFS_NAME = "PhotoMagicPrefs";
+    private static final String KEY_HASH_ITERATIONS = "password_hash_iterations";
+    private static final long TARGET_VERIFY_MS = 150;
+
+    private static volatile UserDatabase instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "user-db"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Context appContext;
+
+    // Compiled once and reused for the hot queries; only touched on the database thread
+    private SQLiteStatement emailExistsStatement;
+    private SQLiteStatement loggedInEmailStatement;
+    private SQLiteStatement passwordLookupStatement;
+
+    public enum LoginResult {NO_SUCH_USER, BAD_PASSWORD, OK, ERROR}
+
+    public enum RegisterResult {SUCCESS, EMAIL_TAKEN, FAILED}
+
+    private UserDatabase(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    // Separate file, used by the instrumented benchmark so it never touches real accounts
+    UserDatabase(Context context, String databaseName) {
+        super(context.getApplicationContext(), databaseName, null, DATABASE_VERSION);
+        appContext = context.getApplicationContext();
+        // Readers don't block on the writer, and commits are a cheap log append
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    public static UserDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (UserDatabase.class) {
+                if (instance == null) {
+                    instance = new UserDatabase(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    // Runs work on the database thread and hands the result to callback on the main thread
+    private <T> void runAsync(Callable<T> work, Callback<T> callback) {
+        executor.execute(() -> {
+            T result;
+            try {
+                result = work.call();
+            } catch (Exception e) {
+                Log.e(TAG, "Database task failed", e);
+                result = null;
+            }
+            if (callback != null) {
+                T finalResult = result;
+                mainHandler.post(() -> callback.onResult(finalResult));
+            }
+        });
+    }
+
+    public void checkEmailExistsAsync(String email, Callback<Boolean> callback) {
+        runAsync(() -> checkEmailExists(email), callback);
+    }
+
+    public void registerUserAsync(String email, String password, Callback<RegisterResult> callback) {
+        runAsync(() -> registerUser(email, password), callback);
+    }
+
+    public void authenticateAsync(String email, String password, Callback<LoginResult> callback) {
+        runAsync(() -> authenticate(email, password), callback);
+    }
+
+    // Calibrates the hashing work factor on the database thread if this install hasn't yet,
+    // so the first registration doesn't pay for the measurement. Called at startup.
+    // callback gets the work factor, or null if calibration failed
+    public void ensureWorkFactorAsync(Callback<Integer> callback) {
+        runAsync(this::getWorkFactor, callback);
+    }
+
+    public void saveLoginSessionAsync(String email, boolean isLoggedIn, Callback<Void> callback) {
+        runAsync(() -> {
+            saveLoginSession(email, isLoggedIn);
+            return null;
+        }, callback);
+    }
+
+    public void getLoggedInEmailAsync(Callback<String> callback) {
+        runAsync(this::getLoggedInEmail, callback);
+    }
+
+    public void isLoggedInAsync(Callback<Boolean> callback) {
+        runAsync(this::isLoggedIn, callback);
+    }
+
+    public void logoutAsync(Callback<Void> callback) {
+        runAsync(() -> {
+            logout();
+            return null;
+        }, callback);
     }
 
     @Override
@@ -71,89 +187,151 @@ public class UserDatabase extends SQLiteOpenHelper {
         }
     }
 
-    // Check if email exists (case-insensitive)
+    // Check if email exists (case-insensitive). The email column is COLLATE NOCASE, so a plain
+    // '=' compares case-insensitively and can use the UNIQUE index; LOWER() on both sides can't.
     public boolean checkEmailExists(String email) {
         if (email == null || email.trim().isEmpty()) {
             return false;
         }
 
-        SQLiteDatabase db = null;
-        Cursor cursor = null;
         try {
-            db = this.getReadableDatabase();
-            cursor = db.query(TABLE_USERS,
-                    new String[]{COLUMN_EMAIL},
-                    "LOWER(" + COLUMN_EMAIL + ") = LOWER(?)",
-                    new String[]{email.trim()},
-                    null, null, null);
-            boolean exists = cursor.getCount() > 0;
+            if (emailExistsStatement == null) {
+                emailExistsStatement = getReadableDatabase().compileStatement(
+                        "SELECT COUNT(*) FROM " + TABLE_USERS + " WHERE " + COLUMN_EMAIL + " = ?");
+            }
+            emailExistsStatement.bindString(1, email.trim());
+            boolean exists = emailExistsStatement.simpleQueryForLong() > 0;
             Log.d(TAG, "Email exists check for '" + email + "': " + exists);
             return exists;
         } catch (Exception e) {
             Log.e(TAG, "Error checking email exists", e);
             return false;
         } finally {
-            if (cursor != null) cursor.close();
+            if (emailExistsStatement != null) emailExistsStatement.clearBindings();
         }
     }
 
-    // Register new user
-    public boolean registerUser(String email, String password) {
+    // Register new user with a salted PBKDF2 hash of the password. No existence pre-check:
+    // the UNIQUE constraint on email rejects duplicates as part of the insert itself.
+    public RegisterResult registerUser(String email, String password) {
         if (email == null || email.trim().isEmpty() || password == null || password.isEmpty()) {
             Log.e(TAG, "Invalid email or password");
-            return false;
+            return RegisterResult.FAILED;
         }
 
         email = email.trim();
-
-        if (checkEmailExists(email)) {
-            Log.d(TAG, "Email already exists: " + email);
-            return false;
-        }
-
-        SQLiteDatabase db = null;
         try {
-            db = this.getWritableDatabase();
+            SQLiteDatabase db = this.getWritableDatabase();
             ContentValues values = new ContentValues();
             values.put(COLUMN_EMAIL, email);
-            values.put(COLUMN_PASSWORD, password);
+            values.put(COLUMN_PASSWORD, PasswordHasher.hash(password, getWorkFactor()));
 
-            long result = db.insert(TABLE_USERS, null, values);
-            boolean success = result != -1;
-            Log.d(TAG, "User registration for '" + email + "': " + (success ? "SUCCESS" : "FAILED"));
-            return success;
+            db.insertOrThrow(TABLE_USERS, null, values);
+            Log.d(TAG, "User registration for '" + email + "': SUCCESS");
+            return RegisterResult.SUCCESS;
+        } catch (SQLiteConstraintException e) {
+            Log.d(TAG, "Email already exists: " + email);
+            return RegisterResult.EMAIL_TAKEN;
         } catch (Exception e) {
             Log.e(TAG, "Error registering user", e);
-            return false;
+            return RegisterResult.FAILED;
         }
     }
 
-    // Validate login credentials (case-insensitive email)
-    public boolean validateLogin(String email, String password) {
+    // Stored password hash (or legacy plaintext) for email, or null if there is no such user. One lookup on the email index.
+    String lookupPassword(String email) {
+        if (passwordLookupStatement == null) {
+            passwordLookupStatement = getReadableDatabase().compileStatement(
+                    "SELECT " + COLUMN_PASSWORD + " FROM " + TABLE_USERS + " WHERE " + COLUMN_EMAIL + " = ?");
+        }
+        try {
+            passwordLookupStatement.bindString(1, email);
+            return passwordLookupStatement.simpleQueryForString();
+        } catch (SQLiteDoneException e) {
+            return null;
+        } finally {
+            passwordLookupStatement.clearBindings();
+        }
+    }
+
+    // Validate login credentials (case-insensitive email) with a single query
+    public LoginResult authenticate(String email, String password) {
         if (email == null || email.trim().isEmpty() || password == null) {
             Log.d(TAG, "Invalid login credentials provided");
-            return false;
+            return LoginResult.NO_SUCH_USER;
         }
 
         email = email.trim();
-        SQLiteDatabase db = null;
-        Cursor cursor = null;
         try {
-            db = this.getReadableDatabase();
-            cursor = db.query(TABLE_USERS,
-                    new String[]{COLUMN_EMAIL, COLUMN_PASSWORD},
-                    "LOWER(" + COLUMN_EMAIL + ") = LOWER(?) AND " + COLUMN_PASSWORD + " = ?",
-                    new String[]{email, password},
-                    null, null, null);
-            boolean valid = cursor.getCount() > 0;
-            Log.d(TAG, "Login validation for '" + email + "': " + (valid ? "SUCCESS" : "FAILED"));
-            return valid;
+            String stored = lookupPassword(email);
+            LoginResult result;
+            if (stored == null) {
+                result = LoginResult.NO_SUCH_USER;
+            } else if (verifyPassword(password, stored)) {
+                result = LoginResult.OK;
+                upgradeHash(email, password, stored);
+            } else {
+                result = LoginResult.BAD_PASSWORD;
+            }
+            Log.d(TAG, "Login validation for '" + email + "': " + result);
+            return result;
         } catch (Exception e) {
             Log.e(TAG, "Error validating login", e);
-            return false;
-        } finally {
-            if (cursor != null) cursor.close();
+            return LoginResult.ERROR;
+        }
+    }
+
+    // Legacy plaintext rows and hashes below today's work factor are rehashed after a
+    // successful login, while we have the password. Best effort: a failure here must not
+    // turn a valid login into a rejected one; the next login tries again.
+    private void upgradeHash(String email, String password, String stored) {
+        try {
+            int iterations = getWorkFactor();
+            if (PasswordHasher.needsRehash(stored, iterations)) {
+                updatePassword(email, PasswordHasher.hash(password, iterations));
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot upgrade password hash for '" + email + "'", e);
+        }
+    }
+
+    private static boolean verifyPassword(String password, String stored) throws Exception {
+        if (PasswordHasher.isHash(stored)) {
+            long start = SystemClock.elapsedRealtime();
+            boolean ok = PasswordHasher.verify(password, stored);
+            PerfMetrics.record("auth.verify_ms", SystemClock.elapsedRealtime() - start);
+            return ok;
         }
+        // Row written before passwords were hashed
+        return MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8),
+                password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void updatePassword(String email, String hashed) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_PASSWORD, hashed);
+        getWritableDatabase().update(TABLE_USERS, values, COLUMN_EMAIL + " = ?", new String[]{email});
+        Log.d(TAG, "Password hash upgraded for '" + email + "'");
+    }
+
+    // Iterations for new hashes; normally calibrated at startup (ensureWorkFactorAsync), here
+    // only if that hasn't run yet. Database thread only.
+    private int getWorkFactor() throws Exception {
+        int stored = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getInt(KEY_HASH_ITERATIONS, 0);
+        return stored > 0 ? stored : calibrateWorkFactor();
+    }
+
+    private int calibrateWorkFactor() throws Exception {
+        int iterations = PasswordHasher.calibrate(TARGET_VERIFY_MS);
+        appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit().putInt(KEY_HASH_ITERATIONS, iterations).apply();
+        PerfMetrics.event("auth", "work factor calibrated to " + iterations + " iterations");
+        return iterations;
+    }
+
+    public boolean validateLogin(String email, String password) {
+        return authenticate(email, password) == LoginResult.OK;
     }
 
     // Check if email exists but password is wrong (case-insensitive)
@@ -189,28 +367,21 @@ public class UserDatabase extends SQLiteOpenHelper {
 
     // Get current session
     public String getLoggedInEmail() {
-        SQLiteDatabase db = null;
-        Cursor cursor = null;
         try {
-            db = this.getReadableDatabase();
-            cursor = db.query(TABLE_SESSION,
-                    new String[]{COLUMN_SESSION_EMAIL},
-                    COLUMN_IS_LOGGED_IN + " = ?",
-                    new String[]{"1"},
-                    null, null, null);
-
-            if (cursor.moveToFirst()) {
-                String email = cursor.getString(0);
-                Log.d(TAG, "Logged in email: " + email);
-                return email;
+            if (loggedInEmailStatement == null) {
+                loggedInEmailStatement = getReadableDatabase().compileStatement(
+                        "SELECT " + COLUMN_SESSION_EMAIL + " FROM " + TABLE_SESSION +
+                                " WHERE " + COLUMN_IS_LOGGED_IN + " = 1 LIMIT 1");
             }
+            String email = loggedInEmailStatement.simpleQueryForString();
+            Log.d(TAG, "Logged in email: " + email);
+            return email;
+        } catch (SQLiteDoneException e) {
             Log.d(TAG, "No logged in user found");
             return null;
         } catch (Exception e) {
             Log.e(TAG, "Error getting logged in email", e);
             return null;
-        } finally {
-            if (cursor != null) cursor.close();
         }
     }
 
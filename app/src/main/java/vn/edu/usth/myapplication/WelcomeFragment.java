@@ -8,8 +8,6 @@
 
 package vn.edu.usth.myapplication;
 
-import android.content.Context;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -47,8 +45,7 @@ public class WelcomeFragment extends Fragment {
     public void onResume() {
         super.onResume();
         // If already logged in, skip welcome
-        SharedPreferences prefs = requireActivity().getSharedPreferences("USER_PREFS", Context.MODE_PRIVATE);
-        if (prefs.getBoolean("LOGGED_IN", false)) {
+        if (SessionManager.getInstance(requireContext()).isLoggedIn()) {
             NavController navController = Navigation.findNavController(requireActivity(), R.id.nav_host_fragment);
             if (navController.getCurrentDestination() != null && navController.getCurrentDestination().getId() == R.id.nav_welcome) {
                 NavOptions navOptions = new NavOptions.Builder()
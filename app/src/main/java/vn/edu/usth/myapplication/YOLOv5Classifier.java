@@ -15,6 +15,7 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Typeface;
+import android.os.SystemClock;
 import android.util.Log;
 
 import org.tensorflow.lite.Interpreter;
@@ -33,13 +34,88 @@ import java.util.List;
 public class YOLOv5Classifier {
 
     private static final String TAG = "YOLOv5Classifier";
-    private final Interpreter interpreter;
-    private final int inputSize = 640;
+    // Values before the class scores in an output row: x, y, w, h, objectness
+    private static final int BOX_VALUES = 5;
+    // Inferences in the recent timing window (see getRecentInferenceMs)
+    private static final int TIMING_WINDOW = 20;
+    private final String modelName;
+    private final MappedByteBuffer model;
+    private Interpreter interpreter;
+    // Interpreter threads, 0 for TFLite's default
+    private int numThreads = 0;
+    // Recent inference times of this interpreter as it is configured now. The first run
+    // after building it pays for lazy allocations and isn't counted.
+    private final double[] recentMs = new double[TIMING_WINDOW];
+    private int recentNext = 0;
+    private boolean warmedUp = false;
+    private volatile int recentCount = 0;
+    private volatile double recentMeanMs = 0;
+    // Read from the model, so exports at other sizes (e.g. 320 for live) work unchanged
+    private final int inputWidth, inputHeight;
+    // Output rows (one per anchor) and classes per row
+    private final int numRows, numClasses;
     private final List<String> labels = new ArrayList<>();
 
+    // Raw output of the last detect(), kept so results can be re-derived with other options
+    // without running the interpreter again. Reused across calls.
+    private final float[][][] output;
+    // Class columns of a row (5..), used when no class mask is set
+    private final int[] allColumns;
+    // Model input used by detect(), reused across calls
+    private ByteBuffer detectInput;
+    private int lastWidth, lastHeight;
+    private boolean hasOutput = false;
+    // Bumped by every detect(), so callers can tell whether the kept output is still theirs
+    private int outputId = 0;
+
+    // Postprocess settings. The defaults keep the original behaviour: 0.4 objectness,
+    // best box only.
+    public static class Options {
+        public float threshold = 0.4f;
+        public int maxResults = 1;
+        // Overlap above which a weaker box of the same class is dropped (maxResults > 1)
+        public float nmsIou = 0.45f;
+        // Per-class switch, indexed like labels; null means every class
+        public boolean[] classMask;
+
+        public Options() {
+        }
+
+        public Options(float threshold, int maxResults) {
+            this.threshold = threshold;
+            this.maxResults = maxResults;
+        }
+    }
+
     public YOLOv5Classifier(AssetManager assetManager, String modelName) throws IOException {
-        interpreter = new Interpreter(loadModelFile(assetManager, modelName));
+        this.modelName = modelName;
+        model = loadModelFile(assetManager, modelName);
+        interpreter = new Interpreter(model);
+        int[] inputShape = interpreter.getInputTensor(0).shape();   // [1, height, width, 3]
+        int[] outputShape = interpreter.getOutputTensor(0).shape(); // [1, rows, 5 + classes]
+        inputHeight = inputShape[1];
+        inputWidth = inputShape[2];
+        numRows = outputShape[1];
+        numClasses = outputShape[2] - BOX_VALUES;
+        output = newOutputBuffer();
+        allColumns = new int[numClasses];
+        for (int c = 0; c < numClasses; c++) allColumns[c] = c + BOX_VALUES;
         loadLabels(assetManager, "labels.txt");
+        Log.d(TAG, modelName + ": input " + inputWidth + "x" + inputHeight + ", output " + numRows + "x" + outputShape[2]);
+    }
+
+    // Postprocessing only, for JVM tests: no model or interpreter, shapes given directly
+    YOLOv5Classifier(List<String> labels, int inputWidth, int inputHeight, int numRows) {
+        modelName = "test";
+        model = null;
+        this.inputWidth = inputWidth;
+        this.inputHeight = inputHeight;
+        this.numRows = numRows;
+        numClasses = labels.size();
+        output = newOutputBuffer();
+        allColumns = new int[numClasses];
+        for (int c = 0; c < numClasses; c++) allColumns[c] = c + BOX_VALUES;
+        this.labels.addAll(labels);
     }
 
     private MappedByteBuffer loadModelFile(AssetManager assetManager, String modelName) throws IOException {
@@ -62,73 +138,232 @@ public class YOLOv5Classifier {
         }
     }
 
-    public List<Result> detect(Bitmap bitmap) {
-        Bitmap resized = Bitmap.createScaledBitmap(bitmap, inputSize, inputSize, true);
-        ByteBuffer inputBuffer = preprocessBitmap(resized);
+    // Synchronized: the interpreter is shared through DetectorProvider and isn't thread-safe
+    public synchronized List<Result> detect(Bitmap bitmap) {
+        return detect(bitmap, new Options());
+    }
+
+    public synchronized List<Result> detect(Bitmap bitmap, Options options) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        if (detectInput == null) detectInput = newInputBuffer();
+        preprocess(bitmap, detectInput);
+        PerfMetrics.record("detector.preprocess_ms", (SystemClock.elapsedRealtimeNanos() - start) / 1e6);
+
+        infer(detectInput, output);
+
+        lastWidth = bitmap.getWidth();
+        lastHeight = bitmap.getHeight();
+        hasOutput = true;
+        outputId++;
+        return repostprocess(options);
+    }
+
+    public synchronized int getOutputId() {
+        return outputId;
+    }
+
+    // Like repostprocess(options), but null if another detect() has replaced that output since
+    public synchronized List<Result> repostprocess(Options options, int expectedOutputId) {
+        return expectedOutputId == outputId ? repostprocess(options) : null;
+    }
+
+    // Re-derives results from the last detect() output; no inference. Empty if nothing
+    // has been detected yet.
+    public synchronized List<Result> repostprocess(Options options) {
+        if (!hasOutput) return new ArrayList<>();
+        long start = SystemClock.elapsedRealtimeNanos();
+        List<Result> results = postprocess(output, lastWidth, lastHeight, options);
+        PerfMetrics.record("detector.postprocess_ms", (SystemClock.elapsedRealtimeNanos() - start) / 1e6);
+        return results;
+    }
+
+    // Labels of enabled classes that win any row of the last output with a score >=
+    // minConfidence, for offering a class filter. classMask null means every class.
+    public synchronized List<String> candidateLabels(float minConfidence, boolean[] classMask) {
+        boolean[] seen = new boolean[labels.size()];
+        List<String> result = new ArrayList<>();
+        if (!hasOutput) return result;
+        int[] columns = enabledColumns(classMask);
+        if (columns.length == 0) return result;
+        for (float[] row : output[0]) {
+            if (row[4] < minConfidence) continue;
+            int classId = bestClass(row, columns);
+            if (classId < 0 || score(row, classId, classMask) < minConfidence) continue;
+            if (classId < seen.length && !seen[classId]) {
+                seen[classId] = true;
+                result.add(labels.get(classId));
+            }
+        }
+        return result;
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    public int getInputWidth() {
+        return inputWidth;
+    }
 
-        float[][][] output = new float[1][25200][85];
-        interpreter.run(inputBuffer, output);
+    public int getInputHeight() {
+        return inputHeight;
+    }
 
-        return postprocess(output, bitmap.getWidth(), bitmap.getHeight());
+    // Per-model inference time stat, e.g. for picking a model that fits a latency budget
+    static String inferenceMetric(String modelName) {
+        return "detector.inference_ms." + modelName.replace(".tflite", "");
     }
 
-    private ByteBuffer preprocessBitmap(Bitmap bitmap) {
-        ByteBuffer byteBuffer = ByteBuffer.allocateDirect(4 * inputSize * inputSize * 3);
+    // The stages below let a caller pipeline several images (see DetectionPipeline):
+    // preprocess and postprocess don't touch the interpreter and can run on other threads
+    // while infer() works on another image. Buffers come from newInputBuffer/newOutputBuffer
+    // and can be reused.
+
+    public ByteBuffer newInputBuffer() {
+        ByteBuffer byteBuffer = ByteBuffer.allocateDirect(4 * inputWidth * inputHeight * 3);
         byteBuffer.order(ByteOrder.nativeOrder());
-        int[] intValues = new int[inputSize * inputSize];
-        bitmap.getPixels(intValues, 0, inputSize, 0, 0, inputSize, inputSize);
+        return byteBuffer;
+    }
+
+    public float[][][] newOutputBuffer() {
+        return new float[1][numRows][BOX_VALUES + numClasses];
+    }
+
+    // Scales bitmap to the model input and writes normalized RGB floats into input
+    public void preprocess(Bitmap bitmap, ByteBuffer input) {
+        Bitmap resized = Bitmap.createScaledBitmap(bitmap, inputWidth, inputHeight, true);
+        input.rewind();
+        preprocessBitmap(resized, input);
+        if (resized != bitmap) resized.recycle();
+    }
+
+    // Synchronized: the interpreter is shared and isn't thread-safe
+    public synchronized void infer(ByteBuffer input, float[][][] out) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        input.rewind();
+        interpreter.run(input, out);
+        double ms = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+        PerfMetrics.record("detector.inference_ms", ms);
+        PerfMetrics.record(inferenceMetric(modelName), ms);
+        if (!warmedUp) {
+            warmedUp = true;
+            return;
+        }
+        recentMs[recentNext] = ms;
+        recentNext = (recentNext + 1) % TIMING_WINDOW;
+        int count = Math.min(recentCount + 1, TIMING_WINDOW);
+        double sum = 0;
+        for (int i = 0; i < count; i++) sum += recentMs[i];
+        recentMeanMs = sum / count;
+        recentCount = count;
+    }
+
+    // Mean of the last TIMING_WINDOW inference times on this interpreter (0 if none yet);
+    // doesn't wait for a running inference
+    public double getRecentInferenceMs() {
+        return recentMeanMs;
+    }
+
+    public int getRecentInferenceCount() {
+        return recentCount;
+    }
+
+    // Rebuilds the interpreter with another thread count (e.g. fewer threads when the device
+    // runs hot, see InferenceScheduler). Waits for a running inference; no-op if unchanged.
+    public synchronized void setNumThreads(int threads) {
+        if (threads == numThreads) return;
+        long start = SystemClock.elapsedRealtime();
+        Interpreter.Options options = new Interpreter.Options();
+        if (threads > 0) options.setNumThreads(threads);
+        Interpreter rebuilt = new Interpreter(model, options);
+        interpreter.close();
+        interpreter = rebuilt;
+        numThreads = threads;
+        // Timings of the old configuration say little about the new one
+        warmedUp = false;
+        recentNext = 0;
+        recentCount = 0;
+        recentMeanMs = 0;
+        PerfMetrics.record("detector.rebuild_ms", SystemClock.elapsedRealtime() - start);
+    }
+
+    public synchronized int getNumThreads() {
+        return numThreads;
+    }
+
+    private void preprocessBitmap(Bitmap bitmap, ByteBuffer byteBuffer) {
+        int[] intValues = new int[inputWidth * inputHeight];
+        bitmap.getPixels(intValues, 0, inputWidth, 0, 0, inputWidth, inputHeight);
         int pixel = 0;
-        for (int i = 0; i < inputSize; i++) {
-            for (int j = 0; j < inputSize; j++) {
+        for (int i = 0; i < inputHeight; i++) {
+            for (int j = 0; j < inputWidth; j++) {
                 int val = intValues[pixel++];
                 byteBuffer.putFloat(((val >> 16) & 0xFF) / 255.f);
                 byteBuffer.putFloat(((val >> 8) & 0xFF) / 255.f);
                 byteBuffer.putFloat((val & 0xFF) / 255.f);
             }
         }
-        return byteBuffer;
     }
 
-    private List<Result> postprocess(float[][][] output, int origW, int origH) {
-        List<Result> results = new ArrayList<>();
+    // Results for an output of infer() on an origW x origH image
+    public List<Result> postprocess(float[][][] output, int origW, int origH, Options options) {
+        List<Result> candidates = new ArrayList<>();
         Result bestResult = null;
-        float bestConfidence = 0;
 
-        for (int i = 0; i < 25200; i++) {
+        // Resolve the mask once; rows are then scored over the enabled columns only
+        int[] columns = enabledColumns(options.classMask);
+        if (columns.length == 0) {
+            Log.d(TAG, "Every class is filtered out");
+            return new ArrayList<>();
+        }
+
+        for (int i = 0; i < numRows; i++) {
             float[] row = output[0][i];
-            float conf = row[4];
-            if (conf < 0.4f) continue;
-
-            int classId = -1;
-            float maxProb = 0;
-            for (int c = 5; c < 85; c++) {
-                if (row[c] > maxProb) {
-                    maxProb = row[c];
-                    classId = c - 5;
-                }
-            }
+            float objectness = row[4];
+            // No class score can exceed objectness, so most rows stop here
+            if (objectness < options.threshold) continue;
+
+            int classId = bestClass(row, columns);
+            if (classId < 0 || classId >= labels.size()) continue;
+            float conf = score(row, classId, options.classMask);
 
-            if (classId >= 0 && classId < labels.size()) {
+            if (conf >= options.threshold) {
                 float x = row[0];
                 float y = row[1];
                 float w = row[2];
                 float h = row[3];
 
-                float left = (x - w / 2) / inputSize * origW;
-                float top = (y - h / 2) / inputSize * origH;
-                float right = (x + w / 2) / inputSize * origW;
-                float bottom = (y + h / 2) / inputSize * origH;
+                float left = (x - w / 2) / inputWidth * origW;
+                float top = (y - h / 2) / inputHeight * origH;
+                float right = (x + w / 2) / inputWidth * origW;
+                float bottom = (y + h / 2) / inputHeight * origH;
 
-                if (conf > bestConfidence) {
-                    bestConfidence = conf;
-                    bestResult = new Result(labels.get(classId), conf, left, top, right, bottom);
+                Result result = new Result(labels.get(classId), conf, left, top, right, bottom);
+                if (options.maxResults <= 1) {
+                    if (bestResult == null || conf > bestResult.conf) {
+                        bestResult = result;
+                    }
+                } else {
+                    candidates.add(result);
                 }
             }
         }
 
-        if (bestResult != null) {
-            results.add(bestResult);
-            Log.d(TAG, "Detected: " + bestResult.label + " with confidence " + (bestResult.conf * 100) + "%");
+        List<Result> results;
+        if (options.maxResults <= 1) {
+            results = new ArrayList<>();
+            if (bestResult != null) results.add(bestResult);
+        } else {
+            results = nonMaxSuppression(candidates, options.nmsIou, options.maxResults);
+        }
+
+        if (!results.isEmpty()) {
+            Log.d(TAG, "Detected: " + results.get(0).label + " with confidence " + (results.get(0).conf * 100) + "%"
+                    + (results.size() > 1 ? " (+" + (results.size() - 1) + " more)" : ""));
         } else {
             Log.d(TAG, "No objects detected above threshold");
         }
@@ -136,8 +371,76 @@ public class YOLOv5Classifier {
         return results;
     }
 
-    public Bitmap drawDetections(Bitmap bitmap, List<Result> results) {
-        Bitmap mutable = bitmap.copy(Bitmap.Config.ARGB_8888, true);
+    // Confidence of a row for classId. Without a mask it is plain objectness, as always.
+    // With one, it is objectness x class probability: a row whose real best class is
+    // filtered out scores low on every enabled class and drops below the threshold,
+    // instead of being relabelled as one of them.
+    private static float score(float[] row, int classId, boolean[] classMask) {
+        return classMask == null ? row[4] : row[4] * row[classId + BOX_VALUES];
+    }
+
+    // Output columns of the classes enabled by classMask (null means all of them)
+    private int[] enabledColumns(boolean[] classMask) {
+        if (classMask == null) return allColumns;
+        int count = 0;
+        for (int c = 0; c < numClasses && c < classMask.length; c++) {
+            if (classMask[c]) count++;
+        }
+        int[] columns = new int[count];
+        int n = 0;
+        for (int c = 0; c < numClasses && c < classMask.length; c++) {
+            if (classMask[c]) columns[n++] = c + BOX_VALUES;
+        }
+        return columns;
+    }
+
+    // Index of the most probable class among the given output columns, or -1. Objectness is
+    // the same for the whole row, so this is also the best objectness x probability score.
+    private static int bestClass(float[] row, int[] columns) {
+        int classId = -1;
+        float maxProb = 0;
+        for (int c : columns) {
+            if (row[c] > maxProb) {
+                maxProb = row[c];
+                classId = c - BOX_VALUES;
+            }
+        }
+        return classId;
+    }
+
+    // Greedy per-class NMS, highest confidence first
+    static List<Result> nonMaxSuppression(List<Result> candidates, float iouThreshold, int maxResults) {
+        List<Result> sorted = new ArrayList<>(candidates);
+        sorted.sort((a, b) -> Float.compare(b.conf, a.conf));
+        List<Result> kept = new ArrayList<>();
+        for (Result candidate : sorted) {
+            boolean suppressed = false;
+            for (Result k : kept) {
+                if (k.label.equals(candidate.label) && iou(k, candidate) > iouThreshold) {
+                    suppressed = true;
+                    break;
+                }
+            }
+            if (!suppressed) {
+                kept.add(candidate);
+                if (kept.size() >= maxResults) break;
+            }
+        }
+        return kept;
+    }
+
+    static float iou(Result a, Result b) {
+        float iw = Math.min(a.right, b.right) - Math.max(a.left, b.left);
+        float ih = Math.min(a.bottom, b.bottom) - Math.max(a.top, b.top);
+        if (iw <= 0 || ih <= 0) return 0f;
+        float inter = iw * ih;
+        float union = (a.right - a.left) * (a.bottom - a.top) + (b.right - b.left) * (b.bottom - b.top) - inter;
+        return union <= 0 ? 0f : inter / union;
+    }
+
+    // Burns boxes and labels straight into a mutable bitmap, without copying it first.
+    // Only the save path uses this; on screen, DetectionOverlayView draws over the photo.
+    public static void drawDetectionsInPlace(Bitmap mutable, List<Result> results) {
         Canvas canvas = new Canvas(mutable);
         Paint paint = new Paint();
         paint.setColor(Color.RED);
@@ -151,12 +454,16 @@ public class YOLOv5Classifier {
 
         for (Result r : results) {
             canvas.drawRect(r.left, r.top, r.right, r.bottom, paint);
-            canvas.drawText(r.label + " " + String.format("%.1f%%", r.conf * 100), r.left, r.top - 10, textPaint);
+            canvas.drawText(caption(r), r.left, r.top - 10, textPaint);
         }
-        return mutable;
     }
 
-    public void close() {
+    // "cup 87.5%"
+    static String caption(Result r) {
+        return r.label + " " + Math.round(r.conf * 1000) / 10f + "%";
+    }
+
+    public synchronized void close() {
         if (interpreter != null) {
             interpreter.close();
         }
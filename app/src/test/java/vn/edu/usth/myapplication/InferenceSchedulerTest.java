@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: InferenceSchedulerTest.java
+ * Last Modified: 18/10/2026 21:05
+ */
+
+package vn.edu.usth.myapplication;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drives the scheduler's policy with fake thermal, battery-saver and latency inputs.
+ * Time is passed in explicitly, so hysteresis can be checked without waiting.
+ */
+public class InferenceSchedulerTest {
+
+    private static final long STEP = InferenceScheduler.EVALUATE_INTERVAL_MS;
+    // Well under the live budget, fast enough to allow stepping up
+    private static final double FAST_MS = InferenceScheduler.LATENCY_BUDGET_MS / 3;
+
+    private static class FakeConditions implements InferenceScheduler.DeviceConditions {
+        int thermal = InferenceScheduler.THERMAL_NONE;
+        boolean powerSave = false;
+
+        @Override
+        public int getThermalStatus() {
+            return thermal;
+        }
+
+        @Override
+        public boolean isPowerSaveMode() {
+            return powerSave;
+        }
+    }
+
+    private FakeConditions conditions;
+    private InferenceScheduler scheduler;
+    private final List<InferenceScheduler.Level> changes = new ArrayList<>();
+    private long now;
+
+    @Before
+    public void setUp() {
+        conditions = new FakeConditions();
+        scheduler = new InferenceScheduler(conditions);
+        scheduler.setListener((level, reason) -> changes.add(level));
+        now = 0;
+    }
+
+    private InferenceScheduler.Level tick() {
+        now += STEP;
+        return scheduler.evaluate(now);
+    }
+
+    private void inferences(double ms, int count) {
+        for (int i = 0; i < count; i++) scheduler.recordInference(ms);
+    }
+
+    @Test
+    public void staysAtFullWhenCoolAndFast() {
+        inferences(FAST_MS, 10);
+        for (int i = 0; i < 30; i++) assertEquals(InferenceScheduler.Level.FULL, tick());
+        assertEquals(0, changes.size());
+    }
+
+    @Test
+    public void thermalStatusStepsDownImmediately() {
+        tick();
+        conditions.thermal = InferenceScheduler.THERMAL_MODERATE;
+        assertEquals(InferenceScheduler.Level.LOW, tick());
+        conditions.thermal = InferenceScheduler.THERMAL_SEVERE;
+        assertEquals(InferenceScheduler.Level.MINIMAL, tick());
+    }
+
+    @Test
+    public void batterySaverCapsAtReduced() {
+        conditions.powerSave = true;
+        assertEquals(InferenceScheduler.Level.REDUCED, tick());
+    }
+
+    @Test
+    public void slowInferenceStepsDownOneLevelPerWindow() {
+        inferences(InferenceScheduler.LATENCY_BUDGET_MS * 2, 10);
+        assertEquals(InferenceScheduler.Level.REDUCED, tick());
+        // The window restarts after a change; a partial window doesn't count
+        inferences(InferenceScheduler.LATENCY_BUDGET_MS * 2, 5);
+        assertEquals(InferenceScheduler.Level.REDUCED, tick());
+        inferences(InferenceScheduler.LATENCY_BUDGET_MS * 2, 5);
+        assertEquals(InferenceScheduler.Level.LOW, tick());
+    }
+
+    @Test
+    public void recoversOnlyAfterConditionsHoldAndOneLevelAtATime() {
+        conditions.thermal = InferenceScheduler.THERMAL_SEVERE;
+        assertEquals(InferenceScheduler.Level.MINIMAL, tick());
+
+        conditions.thermal = InferenceScheduler.THERMAL_NONE;
+        inferences(FAST_MS, 10);
+        long recoverTicks = InferenceScheduler.RECOVER_AFTER_MS / STEP;
+        for (int i = 0; i < recoverTicks; i++) {
+            assertEquals(InferenceScheduler.Level.MINIMAL, tick());
+        }
+        assertEquals(InferenceScheduler.Level.LOW, tick());
+    }
+
+    @Test
+    public void flappingThermalStatusDoesNotOscillate() {
+        conditions.thermal = InferenceScheduler.THERMAL_LIGHT;
+        assertEquals(InferenceScheduler.Level.REDUCED, tick());
+        inferences(FAST_MS, 10);
+        // Cool and warm in turns, never long enough to recover
+        for (int i = 0; i < 40; i++) {
+            conditions.thermal = i % 4 == 0 ? InferenceScheduler.THERMAL_LIGHT : InferenceScheduler.THERMAL_NONE;
+            assertEquals(InferenceScheduler.Level.REDUCED, tick());
+        }
+        assertEquals(1, changes.size());
+    }
+
+    @Test
+    public void middlingLatencyHoldsTheCurrentLevel() {
+        conditions.thermal = InferenceScheduler.THERMAL_LIGHT;
+        tick();
+        conditions.thermal = InferenceScheduler.THERMAL_NONE;
+        // Within budget but not fast enough to afford more work
+        inferences(InferenceScheduler.LATENCY_BUDGET_MS, 10);
+        for (int i = 0; i < 30; i++) assertEquals(InferenceScheduler.Level.REDUCED, tick());
+    }
+
+    @Test
+    public void evaluatesAtMostOncePerInterval() {
+        scheduler.evaluate(STEP);
+        conditions.thermal = InferenceScheduler.THERMAL_SEVERE;
+        assertEquals(InferenceScheduler.Level.FULL, scheduler.evaluate(STEP + STEP / 2));
+        assertEquals(InferenceScheduler.Level.MINIMAL, scheduler.evaluate(2 * STEP));
+    }
+}
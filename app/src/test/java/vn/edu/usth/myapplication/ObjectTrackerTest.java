@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: ObjectTrackerTest.java
+ * Last Modified: 18/10/2026 23:40
+ */
+
+package vn.edu.usth.myapplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Feeds the tracker hand-made detections with explicit timestamps: matching by overlap,
+ * new and dropped tracks, prediction between detections, and the label vote.
+ */
+public class ObjectTrackerTest {
+
+    private ObjectTracker tracker;
+
+    @Before
+    public void setUp() {
+        tracker = new ObjectTracker();
+    }
+
+    private static YOLOv5Classifier.Result box(String label, float conf, float left, float top) {
+        return new YOLOv5Classifier.Result(label, conf, left, top, left + 100, top + 100);
+    }
+
+    private static List<YOLOv5Classifier.Result> frame(YOLOv5Classifier.Result... detections) {
+        List<YOLOv5Classifier.Result> list = new ArrayList<>();
+        Collections.addAll(list, detections);
+        return list;
+    }
+
+    @Test
+    public void firstDetectionStartsATrack() {
+        assertEquals(-1f, tracker.update(frame(box("cup", 0.9f, 0, 0)), 0), 0f);
+        assertEquals(1, tracker.getTracks().size());
+        assertEquals(1, tracker.results().size());
+        assertEquals("cup", tracker.results().get(0).label);
+    }
+
+    @Test
+    public void overlappingDetectionContinuesTheTrack() {
+        tracker.update(frame(box("cup", 0.9f, 0, 0)), 0);
+        int id = tracker.getTracks().get(0).id;
+        float iou = tracker.update(frame(box("cup", 0.8f, 10, 0)), 100);
+        assertTrue(iou > 0.8f);
+        assertEquals(1, tracker.getTracks().size());
+        assertEquals(id, tracker.getTracks().get(0).id);
+        assertEquals(0.8f, tracker.getTracks().get(0).getConfidence(), 1e-6f);
+    }
+
+    @Test
+    public void distantDetectionStartsAnotherTrack() {
+        tracker.update(frame(box("cup", 0.9f, 0, 0)), 0);
+        tracker.update(frame(box("cup", 0.9f, 500, 500)), 100);
+        assertEquals(2, tracker.getTracks().size());
+        // The first track missed this pass, so only the new box is shown
+        List<YOLOv5Classifier.Result> results = tracker.results();
+        assertEquals(1, results.size());
+        assertEquals(500f, results.get(0).left, 1e-3f);
+    }
+
+    @Test
+    public void trackIsDroppedAfterTooManyMisses() {
+        tracker.update(frame(box("cup", 0.9f, 0, 0)), 0);
+        tracker.update(frame(), 100);
+        tracker.update(frame(), 200);
+        assertFalse(tracker.isEmpty());
+        tracker.update(frame(), 300);
+        assertTrue(tracker.isEmpty());
+    }
+
+    @Test
+    public void matchResetsTheMissCount() {
+        tracker.update(frame(box("cup", 0.9f, 0, 0)), 0);
+        tracker.update(frame(), 100);
+        tracker.update(frame(), 200);
+        tracker.update(frame(box("cup", 0.9f, 0, 0)), 300);
+        tracker.update(frame(), 400);
+        tracker.update(frame(), 500);
+        assertFalse(tracker.isEmpty());
+    }
+
+    @Test
+    public void predictionMovesAlongTheMeasuredVelocity() {
+        tracker.update(frame(box("cup", 0.9f, 0, 0)), 0);
+        tracker.update(frame(box("cup", 0.9f, 20, 0)), 100);
+        float corrected = tracker.getTracks().get(0).toResult().left;
+        tracker.predict(200);
+        ObjectTracker.Track track = tracker.getTracks().get(0);
+        assertTrue(track.toResult().left > corrected);
+        // Unconfirmed boxes lose confidence
+        assertTrue(track.getConfidence() < 0.9f);
+        assertEquals(track.getConfidence(), tracker.minConfidence(), 0f);
+    }
+
+    @Test
+    public void oneOddLabelDoesNotFlipTheTrack() {
+        for (int i = 0; i < 3; i++) tracker.update(frame(box("person", 0.8f, 0, 0)), i * 100);
+        tracker.update(frame(box("cup", 0.8f, 0, 0)), 300);
+        assertEquals("person", tracker.getTracks().get(0).getLabel());
+        // A label that keeps winning takes over
+        tracker.update(frame(box("cup", 0.8f, 0, 0)), 400);
+        assertEquals("cup", tracker.getTracks().get(0).getLabel());
+    }
+
+    @Test
+    public void emptyTrackerHasFullConfidence() {
+        assertEquals(1f, tracker.minConfidence(), 0f);
+        tracker.update(frame(box("cup", 0.9f, 0, 0)), 0);
+        tracker.reset();
+        assertTrue(tracker.isEmpty());
+    }
+}
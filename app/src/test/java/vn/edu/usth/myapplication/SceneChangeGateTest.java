@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: SceneChangeGateTest.java
+ * Last Modified: 18/10/2026 23:40
+ */
+
+package vn.edu.usth.myapplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Checks the gate's threshold on synthetic Y planes: identical and noisy frames are
+ * skipped, real changes pass, and drift is measured against the last inferred frame.
+ */
+public class SceneChangeGateTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    private SceneChangeGate gate;
+
+    @Before
+    public void setUp() {
+        gate = new SceneChangeGate();
+    }
+
+    // A horizontal ramp, brightened by offset
+    private static ByteBuffer plane(int offset) {
+        ByteBuffer luma = ByteBuffer.allocate(WIDTH * HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                luma.put(y * WIDTH + x, (byte) (x * 2 + offset));
+            }
+        }
+        return luma;
+    }
+
+    private boolean changed(ByteBuffer luma) {
+        return gate.hasChanged(luma, WIDTH, 1, WIDTH, HEIGHT);
+    }
+
+    private void infer(ByteBuffer luma) {
+        assertTrue(changed(luma));
+        gate.markInferred();
+    }
+
+    @Test
+    public void firstFrameAlwaysCountsAsChanged() {
+        assertTrue(changed(plane(0)));
+        // Nothing was inferred, so there is still nothing to compare with
+        assertTrue(changed(plane(0)));
+    }
+
+    @Test
+    public void identicalFrameIsSkipped() {
+        infer(plane(0));
+        assertFalse(changed(plane(0)));
+        assertEquals(0f, gate.getLastDifference(), 0f);
+    }
+
+    @Test
+    public void differenceBelowThresholdIsSkipped() {
+        infer(plane(0));
+        assertFalse(changed(plane(3)));
+        assertEquals(3f, gate.getLastDifference(), 1e-3f);
+    }
+
+    @Test
+    public void differenceAtThresholdPasses() {
+        infer(plane(0));
+        assertTrue(changed(plane((int) SceneChangeGate.DEFAULT_THRESHOLD)));
+    }
+
+    @Test
+    public void slowDriftAddsUpAgainstTheInferredFrame() {
+        infer(plane(0));
+        assertFalse(changed(plane(2)));
+        assertFalse(changed(plane(4)));
+        assertTrue(changed(plane(7)));
+    }
+
+    @Test
+    public void customThresholdIsUsed() {
+        gate = new SceneChangeGate(2f);
+        infer(plane(0));
+        assertTrue(changed(plane(3)));
+    }
+
+    @Test
+    public void resetForgetsTheInferredFrame() {
+        infer(plane(0));
+        gate.reset();
+        assertTrue(changed(plane(0)));
+    }
+
+    @Test
+    public void framesSmallerThanTheGridAlwaysPass() {
+        ByteBuffer tiny = ByteBuffer.allocate(8 * 8);
+        gate.hasChanged(tiny, 8, 1, 8, 8);
+        gate.markInferred();
+        assertTrue(gate.hasChanged(tiny, 8, 1, 8, 8));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: SharpnessMeterTest.java
+ * Last Modified: 18/10/2026 23:40
+ */
+
+package vn.edu.usth.myapplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Scores synthetic Y planes: hard edges must beat the same pattern blurred, strides must
+ * not change the score, and the recent window must pick out the sharpest frame.
+ */
+public class SharpnessMeterTest {
+
+    private static final int SIZE = 240;
+    private static final int WINDOW = 4;
+
+    private SharpnessMeter meter;
+
+    @Before
+    public void setUp() {
+        meter = new SharpnessMeter(WINDOW);
+    }
+
+    // Checkerboard of 8-pixel squares; blur > 0 ramps each edge over that many pixels
+    private static int value(int x, int y, int blur) {
+        int cell = 8;
+        float fx = edgeProfile(x, cell, blur);
+        float fy = edgeProfile(y, cell, blur);
+        // XOR of the two square waves, written so it stays smooth when blurred
+        float v = fx + fy - 2 * fx * fy;
+        return Math.round(40 + 160 * v);
+    }
+
+    private static float edgeProfile(int p, int cell, int blur) {
+        int phase = p % (2 * cell);
+        float distance = Math.min(phase, 2 * cell - phase);
+        if (blur == 0) return phase < cell ? 0f : 1f;
+        // Triangle wave clipped to [0, 1]: a soft ramp around each edge
+        float t = (cell / 2f - distance) / blur + 0.5f;
+        return 1f - Math.max(0f, Math.min(1f, t));
+    }
+
+    private static ByteBuffer plane(int blur, int rowStride, int pixelStride) {
+        ByteBuffer luma = ByteBuffer.allocate(rowStride * SIZE);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                luma.put(y * rowStride + x * pixelStride, (byte) value(x, y, blur));
+            }
+        }
+        return luma;
+    }
+
+    private double measure(int blur) {
+        return meter.measure(plane(blur, SIZE, 1), SIZE, 1, SIZE, SIZE);
+    }
+
+    @Test
+    public void flatFrameScoresZero() {
+        ByteBuffer flat = ByteBuffer.allocate(SIZE * SIZE);
+        assertEquals(0.0, meter.measure(flat, SIZE, 1, SIZE, SIZE), 1e-9);
+    }
+
+    @Test
+    public void sharpFrameScoresHigherThanBlurred() {
+        double sharp = measure(0);
+        double blurred = measure(6);
+        assertTrue(sharp > blurred * 2);
+    }
+
+    @Test
+    public void strideAndPaddingDoNotChangeTheScore() {
+        double packed = SharpnessMeter.laplacianVariance(plane(0, SIZE, 1), SIZE, 1, SIZE, SIZE);
+        double padded = SharpnessMeter.laplacianVariance(plane(0, SIZE * 2 + 16, 2), SIZE * 2 + 16, 2, SIZE, SIZE);
+        assertEquals(packed, padded, 1e-9);
+    }
+
+    @Test
+    public void blurredFrameIsNotTheSharpestRecent() {
+        double sharp = measure(0);
+        double blurred = measure(6);
+        assertFalse(meter.isSharpestRecent(blurred));
+        assertTrue(meter.isSharpestRecent(sharp));
+    }
+
+    @Test
+    public void oldFramesLeaveTheWindow() {
+        measure(0);
+        double blurred = 0;
+        for (int i = 0; i < WINDOW; i++) blurred = measure(6);
+        assertTrue(meter.isSharpestRecent(blurred));
+    }
+
+    @Test
+    public void windowFillsAfterEnoughFrames() {
+        for (int i = 0; i < WINDOW - 1; i++) measure(0);
+        assertFalse(meter.hasFullWindow());
+        measure(0);
+        assertTrue(meter.hasFullWindow());
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2025 Android project OpenVision API
+ * All rights reserved.
+ * Project: My Application
+ * File: YOLOv5ClassifierTest.java
+ * Last Modified: 18/10/2026 23:10
+ */
+
+package vn.edu.usth.myapplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs postprocess on hand-made output rows, without a model, to check scoring and the
+ * class mask: without a mask a detection's confidence is its objectness, with one it is
+ * objectness times class probability, so rows that really belong to a filtered-out class
+ * are dropped rather than relabelled.
+ */
+public class YOLOv5ClassifierTest {
+
+    private static final List<String> LABELS = Arrays.asList("person", "cup", "bottle");
+    private static final int SIZE = 640;
+
+    private YOLOv5Classifier classifier;
+    private float[][][] output;
+
+    @Before
+    public void setUp() {
+        classifier = new YOLOv5Classifier(LABELS, SIZE, SIZE, 4);
+        output = classifier.newOutputBuffer();
+    }
+
+    private void row(int index, float objectness, float... classProbabilities) {
+        float[] row = output[0][index];
+        row[0] = 320;
+        row[1] = 320;
+        row[2] = 100;
+        row[3] = 200;
+        row[4] = objectness;
+        System.arraycopy(classProbabilities, 0, row, 5, classProbabilities.length);
+    }
+
+    private static YOLOv5Classifier.Options options(boolean[] classMask) {
+        YOLOv5Classifier.Options options = new YOLOv5Classifier.Options(0.4f, 5);
+        options.classMask = classMask;
+        return options;
+    }
+
+    @Test
+    public void confidenceWithoutMaskIsObjectness() {
+        row(0, 0.9f, 0.1f, 0.8f, 0.1f);
+        List<YOLOv5Classifier.Result> results = classifier.postprocess(output, SIZE, SIZE, options(null));
+        assertEquals(1, results.size());
+        assertEquals("cup", results.get(0).label);
+        assertEquals(0.9f, results.get(0).conf, 1e-5f);
+    }
+
+    @Test
+    public void confidenceWithMaskIsObjectnessTimesClassProbability() {
+        row(0, 0.9f, 0.1f, 0.8f, 0.1f);
+        boolean[] all = {true, true, true};
+        List<YOLOv5Classifier.Result> results = classifier.postprocess(output, SIZE, SIZE, options(all));
+        assertEquals(1, results.size());
+        assertEquals("cup", results.get(0).label);
+        assertEquals(0.72f, results.get(0).conf, 1e-5f);
+    }
+
+    @Test
+    public void rowOfDisabledClassIsNotRelabelled() {
+        // Clearly a person; cup is only a distant second
+        row(0, 0.9f, 0.85f, 0.1f, 0.05f);
+        boolean[] kitchen = {false, true, true};
+        List<YOLOv5Classifier.Result> results = classifier.postprocess(output, SIZE, SIZE, options(kitchen));
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void enabledClassStillFoundAlongsideDisabledRow() {
+        row(0, 0.9f, 0.85f, 0.1f, 0.05f);
+        row(1, 0.8f, 0.05f, 0.05f, 0.9f);
+        boolean[] kitchen = {false, true, true};
+        List<YOLOv5Classifier.Result> results = classifier.postprocess(output, SIZE, SIZE, options(kitchen));
+        assertEquals(1, results.size());
+        assertEquals("bottle", results.get(0).label);
+        assertEquals(0.72f, results.get(0).conf, 1e-5f);
+    }
+
+    @Test
+    public void lowObjectnessRowIsDroppedEvenWithConfidentClass() {
+        row(0, 0.3f, 0.99f, 0f, 0f);
+        assertTrue(classifier.postprocess(output, SIZE, SIZE, options(null)).isEmpty());
+    }
+
+    @Test
+    public void boxIsScaledToTheOriginalImage() {
+        row(0, 0.9f, 0.9f, 0f, 0f);
+        YOLOv5Classifier.Result r = classifier.postprocess(output, 1280, 960, options(null)).get(0);
+        assertEquals(540f, r.left, 1e-3f);
+        assertEquals(330f, r.top, 1e-3f);
+        assertEquals(740f, r.right, 1e-3f);
+        assertEquals(630f, r.bottom, 1e-3f);
+    }
+}